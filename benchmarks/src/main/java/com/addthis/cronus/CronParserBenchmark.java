@@ -0,0 +1,71 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and printing of patterns. {@link #parse()} measures the parser
+ * and {@link #build()} measures the cached lookup of {@link CronPattern#build(String)}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CronParserBenchmark {
+
+    @Param({"* * * * *", "0,15,30,45 */2 1-15 jan-jun mon-fri", "5-59/10 0-23/4 1,15 * sun"})
+    public String expression;
+
+    private CronPattern pattern;
+
+    @Setup
+    public void setup() throws Exception {
+        pattern = CronParser.parse(expression);
+    }
+
+    @Benchmark
+    public CronPattern parse() throws Exception {
+        return CronParser.parse(expression);
+    }
+
+    @Benchmark
+    public CronPattern build() throws Exception {
+        return CronPattern.build(expression);
+    }
+
+    @Benchmark
+    public String print() {
+        return CronParser.print(pattern);
+    }
+
+    @Benchmark
+    public String normalize() {
+        return CronParser.normalize(expression);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluation of patterns. The inputs are random times over four years so
+ * that the benchmarks do not measure a single branch of the search. The
+ * patterns range from dense (every minute) to sparse (once every four
+ * years), and the 2:30 pattern falls inside the daylight savings gap of
+ * the New York zone. Lord Howe Island has a thirty minute transition.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CronPatternBenchmark {
+
+    private static final int INPUTS = 1024;
+
+    @Param({"* * * * *", "*/15 9-17 * * mon-fri", "30 2 * * *", "0 0 29 2 *"})
+    public String expression;
+
+    @Param({"UTC", "America/New_York", "Australia/Lord_Howe"})
+    public String zoneId;
+
+    private CronPattern pattern;
+
+    private ZoneId zone;
+
+    private LocalDateTime[] localInputs;
+
+    private ZonedDateTime[] zonedInputs;
+
+    private long[] epochMilliInputs;
+
+    private int cursor;
+
+    @Setup
+    public void setup() throws Exception {
+        pattern = CronParser.parse(expression);
+        zone = ZoneId.of(zoneId);
+        localInputs = new LocalDateTime[INPUTS];
+        zonedInputs = new ZonedDateTime[INPUTS];
+        epochMilliInputs = new long[INPUTS];
+        Random random = new Random(0);
+        long start = Instant.parse("2020-01-01T00:00:00Z").toEpochMilli();
+        long range = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli() - start;
+        for (int i = 0; i < INPUTS; i++) {
+            long epochMilli = start + (long) (random.nextDouble() * range);
+            epochMilliInputs[i] = epochMilli;
+            zonedInputs[i] = Instant.ofEpochMilli(epochMilli).atZone(zone);
+            localInputs[i] = zonedInputs[i].toLocalDateTime();
+        }
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (INPUTS - 1);
+        return cursor;
+    }
+
+    @Benchmark
+    public LocalDateTime nextLocal() {
+        return pattern.next(localInputs[next()], false);
+    }
+
+    @Benchmark
+    public ZonedDateTime nextZoned() {
+        return pattern.next(zonedInputs[next()], false);
+    }
+
+    @Benchmark
+    public LocalDateTime previousLocal() {
+        return pattern.previous(localInputs[next()], false);
+    }
+
+    @Benchmark
+    public ZonedDateTime previousZoned() {
+        return pattern.previous(zonedInputs[next()], false);
+    }
+
+    @Benchmark
+    public boolean matchesLocal() {
+        return pattern.matches(localInputs[next()]);
+    }
+
+    @Benchmark
+    public boolean matchesZoned() {
+        return pattern.matches(zonedInputs[next()]);
+    }
+
+    @Benchmark
+    public long nextEpochMilli() {
+        return pattern.nextEpochMilli(epochMilliInputs[next()], zone, false);
+    }
+}
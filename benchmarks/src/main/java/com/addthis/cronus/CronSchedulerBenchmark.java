@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of scheduling and cancelling jobs on a running scheduler.
+ * The jobs do not fire during the benchmark. Run with {@code -t} to
+ * measure contention between threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CronSchedulerBenchmark {
+
+    private static final Runnable NOOP = () -> { };
+
+    @Param({"SCHEDULED_THREAD_POOL", "TIMING_WHEEL"})
+    public CronScheduler.Engine engine;
+
+    @Param({"PER_JOB", "MINUTE_TICK"})
+    public CronScheduler.Dispatch dispatch;
+
+    private CronScheduler scheduler;
+
+    private CronPattern[] patterns;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        scheduler = new CronScheduler.Builder(1).setEngine(engine).setDispatch(dispatch)
+                                                .setFlightRecorderEvents(false).build();
+        scheduler.start();
+        scheduler.awaitRunning();
+        // patterns that do not fire within the measurement
+        patterns = new CronPattern[] {
+                CronPattern.build("0 0 29 2 *"),
+                CronPattern.build("0 12 25 12 *"),
+                CronPattern.build("30 4 1 1 *"),
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.stop();
+        scheduler.awaitTerminated();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int value;
+    }
+
+    @Benchmark
+    public Future<?> scheduleCancel(Cursor cursor) {
+        cursor.value = (cursor.value + 1) % patterns.length;
+        CronPattern pattern = patterns[cursor.value];
+        Future<?> future = scheduler.schedule(pattern, NOOP, JobOptions.DEFAULT);
+        future.cancel(false);
+        return future;
+    }
+}
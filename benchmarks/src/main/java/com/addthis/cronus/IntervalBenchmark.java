@@ -0,0 +1,88 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.concurrent.TimeUnit;
+
+import com.addthis.cronus.internal.Interval;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Operations on the interval of the minute column.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IntervalBenchmark {
+
+    /**
+     * Every minute, every fifteen minutes, and a single minute.
+     */
+    @Param({"1", "15", "60"})
+    public int step;
+
+    private Interval interval;
+
+    private int cursor;
+
+    @Setup
+    public void setup() {
+        interval = new Interval.Builder(0, 59).setRange(7 % step, 59, step, true).build();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) % 60;
+        return cursor;
+    }
+
+    @Benchmark
+    public int nextInt() {
+        return interval.nextInt(next(), false);
+    }
+
+    @Benchmark
+    public int previousInt() {
+        return interval.previousInt(next(), false);
+    }
+
+    @Benchmark
+    public boolean test() {
+        return interval.test(next());
+    }
+
+    @Benchmark
+    public int cardinality() {
+        return interval.cardinality();
+    }
+
+    @Benchmark
+    public void forEach(Blackhole blackhole) {
+        interval.forEach(blackhole::consume);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.text.ParseException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * Simulates a cron scheduler with a large number of jobs over a day of
+ * virtual time and prints a report for sizing nodes. The scheduler runs
+ * in virtual time on a {@link VirtualTimeExecutor} so a simulated day
+ * completes in a fraction of the time. Every job runs inline on the timer thread and
+ * does nothing other than record its lag.
+ *
+ * The virtual clock stands still while the tasks of a virtual instant
+ * run. The lag of a firing is therefore measured as the real time spent
+ * by the scheduler on the earlier firings of the same minute. This is the
+ * delay that a single timer thread adds during bursts such as the top of
+ * the hour. Utilization is the real time spent on the timer thread divided
+ * by the simulated time.
+ *
+ * Usage: {@code java -cp benchmarks.jar com.addthis.cronus.ScaleHarness [options]}
+ * <pre>
+ * --jobs N          number of jobs (default 100000)
+ * --hours N         simulated hours (default 24)
+ * --dispatch MODE   PER_JOB or MINUTE_TICK (default PER_JOB)
+ * --seed N          seed of the pattern mix (default 1)
+ * --start INSTANT   start of the simulation (default 2024-01-01T00:00:00Z)
+ * --zone ZONE       time zone of the scheduler (default UTC)
+ * </pre>
+ */
+public final class ScaleHarness {
+
+    private ScaleHarness() {}
+
+    /**
+     * Weighted mix of patterns. Five minute and hourly jobs with a
+     * random minute are spread out. Five minute jobs without an offset
+     * and top of the hour jobs create bursts.
+     */
+    static String randomPattern(Random random) {
+        int choice = random.nextInt(100);
+        if (choice < 20) {
+            return "*/5 * * * *";
+        } else if (choice < 35) {
+            return (random.nextInt(5)) + "-59/5 * * * *";
+        } else if (choice < 55) {
+            return random.nextInt(60) + " * * * *";
+        } else if (choice < 70) {
+            return "0 * * * *";
+        } else if (choice < 90) {
+            return random.nextInt(60) + " " + random.nextInt(6) + " * * *";
+        } else {
+            return "*/15 9-17 * * 1-5";
+        }
+    }
+
+    private static List<Map.Entry<CronPattern, Runnable>> entries(String[] patterns, Runnable job)
+            throws ParseException {
+        List<Map.Entry<CronPattern, Runnable>> entries = new ArrayList<>(patterns.length);
+        for (String pattern : patterns) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(CronPattern.build(pattern), job));
+        }
+        return entries;
+    }
+
+    private static long usedHeap(MemoryMXBean memory) throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%,.1f us", nanos / 1_000.0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int jobs = 100_000;
+        int hours = 24;
+        CronScheduler.Dispatch dispatch = CronScheduler.Dispatch.PER_JOB;
+        long seed = 1;
+        Instant start = Instant.parse("2024-01-01T00:00:00Z");
+        ZoneId zone = ZoneId.of("UTC");
+        for (int i = 0; i < args.length; i += 2) {
+            if ((i + 1) >= args.length) {
+                throw new IllegalArgumentException("Missing value for option " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--jobs":
+                    jobs = Integer.parseInt(value);
+                    break;
+                case "--hours":
+                    hours = Integer.parseInt(value);
+                    break;
+                case "--dispatch":
+                    dispatch = CronScheduler.Dispatch.valueOf(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--start":
+                    start = Instant.parse(value);
+                    break;
+                case "--zone":
+                    zone = ZoneId.of(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+        run(jobs, hours, dispatch, seed, start, zone);
+    }
+
+    static void run(int jobs, int hours, CronScheduler.Dispatch dispatch, long seed,
+                    Instant start, ZoneId zone) throws Exception {
+        VirtualTimeExecutor executor = new VirtualTimeExecutor(start, zone);
+        LatencyHistogram lag = new LatencyHistogram();
+        // every firing is due at the minute boundary that starts the batch
+        long[] batchStart = new long[1];
+        Runnable job = () -> lag.record(System.nanoTime() - batchStart[0]);
+        CronScheduler.Builder builder = new CronScheduler.Builder(1).setDispatch(dispatch)
+                                                                    .setFlightRecorderEvents(false)
+                                                                    .setVirtualTime(executor);
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        Random random = new Random(seed);
+        String[] patterns = new String[jobs];
+        for (int i = 0; i < jobs; i++) {
+            patterns[i] = randomPattern(random);
+        }
+        long heapBefore = usedHeap(memory);
+        CronScheduler scheduler = builder.build();
+        long scheduleStart = System.nanoTime();
+        scheduler.scheduleAll(entries(patterns, job), JobOptions.DEFAULT);
+        scheduler.startAsync().awaitRunning();
+        long scheduleNanos = System.nanoTime() - scheduleStart;
+        long heapAfter = usedHeap(memory);
+
+        long minutes = TimeUnit.HOURS.toMinutes(hours);
+        long busyNanos = 0;
+        long busiestMinute = 0;
+        long busiestNanos = 0;
+        long maxQueue = executor.getQueueSize();
+        long totalQueue = 0;
+        long tasks = 0;
+        for (long minute = 1; minute <= minutes; minute++) {
+            long before = System.nanoTime();
+            batchStart[0] = before;
+            tasks += executor.advanceTo(start.plus(Duration.ofMinutes(minute)));
+            long elapsed = System.nanoTime() - before;
+            busyNanos += elapsed;
+            if (elapsed > busiestNanos) {
+                busiestNanos = elapsed;
+                busiestMinute = minute;
+            }
+            maxQueue = Math.max(maxQueue, executor.getQueueSize());
+            totalQueue += executor.getQueueSize();
+        }
+        scheduler.stopAsync().awaitTerminated();
+
+        LatencyHistogram.Snapshot snapshot = lag.snapshot();
+        long simulatedNanos = TimeUnit.MINUTES.toNanos(minutes);
+        System.out.printf("jobs                 %,d%n", jobs);
+        System.out.printf("dispatch             %s%n", dispatch);
+        System.out.printf("simulated            %d hours from %s in %s%n", hours, start, zone);
+        System.out.printf("simulation time      %,d ms (%,.0fx real time)%n",
+                          TimeUnit.NANOSECONDS.toMillis(busyNanos), simulatedNanos / (double) Math.max(1, busyNanos));
+        System.out.printf("schedule + start     %,d ms (%s per job)%n",
+                          TimeUnit.NANOSECONDS.toMillis(scheduleNanos), micros(scheduleNanos / jobs));
+        System.out.printf("heap per job         %,d bytes%n", (heapAfter - heapBefore) / jobs);
+        System.out.printf("firings              %,d%n", snapshot.getCount());
+        System.out.printf("timer tasks          %,d%n", tasks);
+        System.out.printf("timer queue          max %,d, mean %,d%n", maxQueue, totalQueue / Math.max(1, minutes));
+        System.out.printf("lag                  p50 %s, p99 %s, p99.9 %s, max %s%n",
+                          micros(snapshot.getValueAtPercentile(50)), micros(snapshot.getValueAtPercentile(99)),
+                          micros(snapshot.getValueAtPercentile(99.9)), micros(snapshot.getMax()));
+        System.out.printf("timer utilization    mean %.4f%%, busiest minute %d at %.4f%%%n",
+                          100.0 * busyNanos / simulatedNanos, busiestMinute,
+                          100.0 * busiestNanos / TimeUnit.MINUTES.toNanos(1));
+    }
+}
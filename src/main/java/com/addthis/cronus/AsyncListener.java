@@ -0,0 +1,151 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import java.time.Instant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches the events of a listener on a dedicated thread. Events are
+ * placed in a bounded queue and an event is dropped if the queue is full,
+ * so a slow listener never delays the firing of jobs. Events that are
+ * queued before {@link #start()} are delivered once the thread starts.
+ * After {@link #stop()} the remaining events are delivered and the
+ * thread exits. Events that arrive after {@link #stop()} are dropped.
+ */
+class AsyncListener implements CronSchedulerListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncListener.class);
+
+    /**
+     * Wakes the thread when it waits for an event after {@link #stop()}.
+     */
+    private static final Runnable STOP = () -> { };
+
+    @Nonnull
+    private final CronSchedulerListener delegate;
+
+    @Nonnull
+    private final BlockingQueue<Runnable> queue;
+
+    @Nonnull
+    private final Thread thread;
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    AsyncListener(@Nonnull CronSchedulerListener delegate, int capacity) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this::dispatchLoop, "cron-scheduler-listener");
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Does not interrupt the thread, which may be running a callback of the
+     * delegate. If the queue is full then the thread is not waiting and
+     * exits once the queue is drained, so the stop event is not needed.
+     */
+    void stop() {
+        running = false;
+        queue.offer(STOP);
+    }
+
+    /**
+     * Returns the number of events that were dropped because the
+     * queue was full or because they arrived after {@link #stop()}.
+     */
+    long getDropped() {
+        return dropped.get();
+    }
+
+    private void offer(Runnable event) {
+        if (!running || !queue.offer(event)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running || !queue.isEmpty()) {
+            Runnable event;
+            try {
+                event = running ? queue.take() : queue.poll();
+            } catch (InterruptedException ex) {
+                continue;
+            }
+            if ((event != null) && (event != STOP)) {
+                try {
+                    event.run();
+                } catch (RuntimeException ex) {
+                    log.warn("Ignoring exception from cron scheduler listener: ", ex);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onScheduled(CronFuture<?> future) {
+        offer(() -> delegate.onScheduled(future));
+    }
+
+    @Override
+    public void onFired(CronFuture<?> future, Instant scheduledTime) {
+        offer(() -> delegate.onFired(future, scheduledTime));
+    }
+
+    @Override
+    public void onStarted(CronFuture<?> future) {
+        offer(() -> delegate.onStarted(future));
+    }
+
+    @Override
+    public void onCompleted(CronFuture<?> future, long durationNanos) {
+        offer(() -> delegate.onCompleted(future, durationNanos));
+    }
+
+    @Override
+    public void onFailed(CronFuture<?> future, Throwable cause) {
+        offer(() -> delegate.onFailed(future, cause));
+    }
+
+    @Override
+    public void onCancelled(CronFuture<?> future) {
+        offer(() -> delegate.onCancelled(future));
+    }
+
+    @Override
+    public void onMisfire(CronFuture<?> future, Instant scheduledTime, Instant actualTime,
+                          long missedFirings, MisfirePolicy policy) {
+        offer(() -> delegate.onMisfire(future, scheduledTime, actualTime, missedFirings, policy));
+    }
+
+    @Override
+    public void onRejected(CronFuture<?> future, RejectedExecutionException cause) {
+        offer(() -> delegate.onRejected(future, cause));
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.concurrent.Future;
+
+/**
+ * The handle of a job that is returned by {@link CronScheduler}.
+ * Invoking {@link Future#cancel(boolean)} will cancel any future
+ * executions of the job.
+ */
+public interface CronFuture<V> extends Future<V> {
+
+    CronPattern getPattern();
+
+    /**
+     * Returns the firing lag of the job. The lag of a firing is the time
+     * from the scheduled time of the firing to the start of its run.
+     * The snapshot is empty unless the scheduler records latency.
+     */
+    LatencyHistogram.Snapshot getLagSnapshot();
+
+    /**
+     * Returns the run durations of the job. The snapshot
+     * is empty unless the scheduler records latency.
+     */
+    LatencyHistogram.Snapshot getDurationSnapshot();
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.Date;
+
+/**
+ * Management interface of a named job of a {@link CronScheduler}. Registered
+ * in the platform MBean server as
+ * {@code com.addthis.cronus:type=CronJob,scheduler=<scheduler name>,name=<job name>}
+ * when the job is scheduled with {@link JobOptions.Builder#setName(String)}
+ * on a scheduler that is registered with JMX. The bean is unregistered
+ * when the job is cancelled or the scheduler stops.
+ */
+public interface CronJobMXBean {
+
+    String getName();
+
+    String getPattern();
+
+    /**
+     * Number of runs of the job that are in progress.
+     */
+    int getActiveRuns();
+
+    long getFirings();
+
+    long getFailures();
+
+    long getRejectedExecutions();
+
+    double getLag50thPercentileMillis();
+
+    double getLag99thPercentileMillis();
+
+    double getLagMaxMillis();
+
+    double getDuration50thPercentileMillis();
+
+    double getDuration99thPercentileMillis();
+
+    double getDurationMaxMillis();
+
+    /**
+     * Time of the next firing of the job, or null if the job does not fire again.
+     */
+    Date getNextFireTime();
+}
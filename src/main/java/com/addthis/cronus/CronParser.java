@@ -13,136 +13,261 @@
  */
 package com.addthis.cronus;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
 import java.text.ParseException;
 
 import com.addthis.cronus.internal.Interval;
 import com.addthis.cronus.internal.TimePeriod;
 
-import com.google.common.base.Joiner;
 import com.google.common.base.Preconditions;
 
 /**
  * Use {@link CronPattern#build(String)} to construct cron patterns.
+ *
+ * The parser is a hand-written scanner that makes a single pass
+ * over each column and writes directly into the interval builders.
+ * Each column is a comma separated list of buckets. A bucket is
+ * either a wildcard, a value, a range of values, or a range of
+ * values with an increment. A wildcard may be followed by an
+ * increment. Values are either numbers or three letter names in
+ * the month and dayOfWeek columns.
  */
 class CronParser {
 
-    private static Pattern WHITESPACE = Pattern.compile("\\s+");
-
-    private static Pattern RANGE = Pattern.compile("(\\d+)-(\\d+)");
-
-    private static Pattern RANGE_INCREMENT = Pattern.compile("(\\d+)-(\\d+)/(\\d+)");
-
-    private static Pattern NUMBER = Pattern.compile("\\d+");
-
-    private static Joiner COMMA_JOINER = Joiner.on(',');
-
-    private static Joiner SPACE_JOINER = Joiner.on(' ');
+    private static final TimePeriod[] PERIODS = TimePeriod.values();
 
     static String print(CronPattern pattern) {
         Preconditions.checkNotNull(pattern, "pattern argument must be non-null");
-        List<String> components = new ArrayList<>();
-        TimePeriod[] periods = TimePeriod.values();
-        for (int i = 0; i < periods.length; i++) {
-            TimePeriod period = periods[i];
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < PERIODS.length; i++) {
+            TimePeriod period = PERIODS[i];
             Interval interval = pattern.getInterval(period);
+            if (i > 0) {
+                builder.append(' ');
+            }
             if (interval.isFull()) {
-                components.add("*");
+                builder.append('*');
             } else {
-                List<String> sections = new ArrayList<>();
-                int current = period.min;
-                while (current <= period.max) {
-                    int start, end;
-                    while (current <= period.max && !interval.test(current)) {
-                        current++;
+                boolean first = true;
+                int current = interval.nextInt(period.min, true);
+                while (current != -1) {
+                    int end = current;
+                    while (end < period.max && interval.test(end + 1)) {
+                        end++;
                     }
-                    if (current > period.max) {
-                        break;
+                    if (!first) {
+                        builder.append(',');
                     }
-                    start = current;
-                    while (current <= period.max && interval.test(current)) {
-                        current++;
-                    }
-                    end = current - 1;
-                    if (start == end) {
-                        sections.add(Integer.toString(start));
-                    } else {
-                        sections.add(start + "-" + end);
+                    builder.append(current);
+                    if (end > current) {
+                        builder.append('-').append(end);
                     }
+                    first = false;
+                    current = (end < period.max) ? interval.nextInt(end, false) : -1;
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Returns the pattern with leading and trailing whitespace removed,
+     * interior whitespace collapsed into a single space, and letters
+     * converted to lower case. Two strings with the same normalized
+     * form parse into equal patterns.
+     */
+    static String normalize(String pattern) {
+        Preconditions.checkNotNull(pattern, "pattern argument must be non-null");
+        StringBuilder builder = new StringBuilder(pattern.length());
+        boolean whitespace = false;
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (isWhitespace(c)) {
+                whitespace = true;
+            } else {
+                if (whitespace && builder.length() > 0) {
+                    builder.append(' ');
                 }
-                components.add(COMMA_JOINER.join(sections));
+                whitespace = false;
+                builder.append(((c >= 'A') && (c <= 'Z')) ? (char) (c + ('a' - 'A')) : c);
             }
         }
-        return SPACE_JOINER.join(components);
+        return builder.toString();
     }
 
     static CronPattern parse(String pattern) throws ParseException {
         Preconditions.checkNotNull(pattern, "pattern argument must be non-null");
         pattern = pattern.trim();
-        String[] components = WHITESPACE.split(pattern);
-        TimePeriod[] periods = TimePeriod.values();
-        Interval[] intervals = new Interval[periods.length];
-        if (components.length != periods.length) {
-            int columns = (pattern.length() == 0) ? 0 : components.length;
-            throw new ParseException("Expected " + periods.length + " columns. " +
+        int length = pattern.length();
+        int columns = 0;
+        for (int i = 0; i < length; i++) {
+            if (!isWhitespace(pattern.charAt(i)) && ((i == 0) || isWhitespace(pattern.charAt(i - 1)))) {
+                columns++;
+            }
+        }
+        if (columns != PERIODS.length) {
+            throw new ParseException("Expected " + PERIODS.length + " columns. " +
                                      "Found " + columns + " columns", 0);
         }
-        pattern = pattern + " "; // shortcut to avoid special handling of last column
-        int index = 0, start = 0, end;
-        Matcher matcher = WHITESPACE.matcher(pattern);
-        while (matcher.find()) {
-            end = matcher.start();
-            TimePeriod period = periods[index];
-            Interval.Builder builder = new Interval.Builder(period.min, period.max);
-            String component = pattern.substring(start, end);
-            component = period.replaceConstants(component);
-            String[] buckets = component.split(",");
-            for (String bucket : buckets) {
-                if (bucket.startsWith("*")) {
-                    if (bucket.indexOf("*", 1) != -1) {
-                        throw new ParseException("wildcard syntax error in " +
-                                                 period.description + " column", start);
-                    } else {
-                        bucket = (period.min + "-" + period.max) + bucket.substring(1, bucket.length());
-                    }
-                }
-                Matcher rangeMatcher = RANGE.matcher(bucket);
-                Matcher rangeIncrementMatcher = RANGE_INCREMENT.matcher(bucket);
-                Matcher numberMatcher = NUMBER.matcher(bucket);
-                ParseException parseException = null;
-                try {
-                    if (rangeMatcher.matches()) {
-                        builder.setRange(Integer.parseInt(rangeMatcher.group(1)),
-                                         period.substituteEndRange(Integer.parseInt(rangeMatcher.group(2))),
-                                         true);
-                    } else if (rangeIncrementMatcher.matches()) {
-                        builder.setRange(Integer.parseInt(rangeIncrementMatcher.group(1)),
-                                         period.substituteEndRange(Integer.parseInt(rangeIncrementMatcher.group(2))),
-                                         Integer.parseInt(rangeIncrementMatcher.group(3)),
-                                         true);
-                    } else if (numberMatcher.matches()) {
-                        builder.setIndex(period.substituteValue(Integer.parseInt(bucket)), true);
-                    } else {
-                        parseException = new ParseException("Unrecognized value in " +
-                                                            period.description + " column", start);
-                    }
-                } catch (Exception ex) {
-                    parseException = new ParseException(ex.getMessage() + " in " +
-                                                        period.description + " column", start);
-                }
-                if (parseException != null) {
-                    throw parseException;
-                }
+        Interval[] intervals = new Interval[PERIODS.length];
+        int start = 0;
+        for (int index = 0; index < PERIODS.length; index++) {
+            int end = start;
+            while ((end < length) && !isWhitespace(pattern.charAt(end))) {
+                end++;
+            }
+            intervals[index] = parseColumn(pattern, start, end, PERIODS[index]);
+            start = end;
+            while ((start < length) && isWhitespace(pattern.charAt(start))) {
+                start++;
             }
-            intervals[index] = builder.build();
-            index++;
-            start = matcher.end();
         }
         return new CronPattern(intervals[0], intervals[1], intervals[2], intervals[3], intervals[4], pattern);
     }
 
+    /**
+     * Parse the column in the range [start, end) of the input.
+     * Empty buckets at the end of the column are ignored.
+     */
+    private static Interval parseColumn(String input, int start, int end, TimePeriod period)
+            throws ParseException {
+        Interval.Builder builder = new Interval.Builder(period.min, period.max);
+        int trailing = end;
+        while ((trailing > start) && (input.charAt(trailing - 1) == ',')) {
+            trailing--;
+        }
+        int position = start;
+        while (position < trailing) {
+            int bucketEnd = position;
+            while ((bucketEnd < trailing) && (input.charAt(bucketEnd) != ',')) {
+                bucketEnd++;
+            }
+            try {
+                parseBucket(input, position, bucketEnd, period, builder, start);
+            } catch (IllegalArgumentException ex) {
+                throw new ParseException(ex.getMessage() + " in " + period.description + " column", start);
+            }
+            position = bucketEnd + 1;
+        }
+        return builder.build();
+    }
+
+    private static void parseBucket(String input, int start, int end, TimePeriod period,
+                                    Interval.Builder builder, int column) throws ParseException {
+        if (start == end) {
+            throw unrecognized(period, column);
+        }
+        int low, high;
+        int position = start;
+        if (input.charAt(position) == '*') {
+            int wildcard = input.indexOf('*', position + 1);
+            if ((wildcard != -1) && (wildcard < end)) {
+                throw new ParseException("wildcard syntax error in " + period.description + " column", column);
+            }
+            low = period.min;
+            high = period.max;
+            position++;
+            if (position == end) {
+                builder.setRange(low, high, true);
+                return;
+            }
+        } else {
+            int valueEnd = scanValue(input, position, end);
+            low = parseValue(input, position, valueEnd, period, column);
+            position = valueEnd;
+            if (position == end) {
+                builder.setIndex(period.substituteValue(low), true);
+                return;
+            } else if (input.charAt(position) != '-') {
+                throw unrecognized(period, column);
+            }
+            int highStart = position + 1;
+            int highEnd = scanValue(input, highStart, end);
+            high = period.substituteEndRange(parseValue(input, highStart, highEnd, period, column));
+            position = highEnd;
+            if (position == end) {
+                builder.setRange(low, high, true);
+                return;
+            }
+        }
+        if (input.charAt(position) != '/') {
+            throw unrecognized(period, column);
+        }
+        int incrementStart = position + 1;
+        int incrementEnd = scanDigits(input, incrementStart, end);
+        if ((incrementStart == incrementEnd) || (incrementEnd != end)) {
+            throw unrecognized(period, column);
+        }
+        builder.setRange(low, high, parseNumber(input, incrementStart, incrementEnd), true);
+    }
+
+    /**
+     * Returns the end of the value that begins at the start position.
+     * A value is either a sequence of digits or a sequence of letters.
+     */
+    private static int scanValue(String input, int start, int end) {
+        int position = scanDigits(input, start, end);
+        if (position == start) {
+            while ((position < end) && isLetter(input.charAt(position))) {
+                position++;
+            }
+        }
+        return position;
+    }
+
+    private static int scanDigits(String input, int start, int end) {
+        int position = start;
+        while ((position < end) && isDigit(input.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static int parseValue(String input, int start, int end, TimePeriod period, int column)
+            throws ParseException {
+        if (start == end) {
+            throw unrecognized(period, column);
+        } else if (isDigit(input.charAt(start))) {
+            return parseNumber(input, start, end);
+        }
+        int value = period.lookupName(input, start, end);
+        if (value == -1) {
+            throw unrecognized(period, column);
+        }
+        return value;
+    }
+
+    /**
+     * Parse a sequence of digits. Throws an exception with the same
+     * message as {@link Integer#parseInt(String)} on overflow.
+     */
+    private static int parseNumber(String input, int start, int end) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            value = value * 10 + (input.charAt(i) - '0');
+            if (value > Integer.MAX_VALUE) {
+                throw new NumberFormatException("For input string: \"" + input.substring(start, end) + "\"");
+            }
+        }
+        return (int) value;
+    }
+
+    private static ParseException unrecognized(TimePeriod period, int column) {
+        return new ParseException("Unrecognized value in " + period.description + " column", column);
+    }
+
+    private static boolean isDigit(char c) {
+        return (c >= '0') && (c <= '9');
+    }
+
+    private static boolean isLetter(char c) {
+        return ((c >= 'a') && (c <= 'z')) || ((c >= 'A') && (c <= 'Z'));
+    }
+
+    /**
+     * Matches the same characters as the regular expression {@code \s}.
+     */
+    private static boolean isWhitespace(char c) {
+        return (c == ' ') || (c == '\t') || (c == '\n') || (c == '\u000B') || (c == '\f') || (c == '\r');
+    }
+
 }
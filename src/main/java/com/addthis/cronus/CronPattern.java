@@ -13,12 +13,20 @@
  */
 package com.addthis.cronus;
 
+import javax.annotation.Nullable;
+
 import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import java.text.ParseException;
-import java.time.DateTimeException;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.MonthDay;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
@@ -28,16 +36,26 @@ import java.time.temporal.Temporal;
 import java.time.zone.ZoneOffsetTransition;
 import java.time.zone.ZoneRules;
 
+import com.addthis.cronus.internal.DayTable;
+import com.addthis.cronus.internal.EpochCalendar;
 import com.addthis.cronus.internal.Interval;
+import com.addthis.cronus.internal.MinuteTable;
 import com.addthis.cronus.internal.TimePeriod;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import static com.addthis.cronus.internal.TimePeriod.MINUTE;
 import static com.addthis.cronus.internal.TimePeriod.HOUR;
 import static com.addthis.cronus.internal.TimePeriod.DAYOFMONTH;
 import static com.addthis.cronus.internal.TimePeriod.MONTH;
 import static com.addthis.cronus.internal.TimePeriod.DAYOFWEEK;
+import static com.addthis.cronus.internal.EpochCalendar.MINUTES_PER_DAY;
 
 /**
  * Immutable cron pattern. Patterns can be created from
@@ -60,8 +78,49 @@ public class CronPattern {
 
     final boolean isEmpty;
 
+    final DayTable days;
+
+    final MinuteTable minutes;
+
+    /**
+     * Returned by the epoch methods when the pattern never fires.
+     */
+    public static final long NO_MATCH = Long.MIN_VALUE;
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    /**
+     * Maximum number of distinct pattern strings retained by {@link #build(String)}.
+     */
+    private static final int PARSE_CACHE_SIZE = 10_000;
+
+    /**
+     * Parsed patterns keyed by the normalized source string.
+     */
+    private static final Cache<String, CronPattern> PARSE_CACHE =
+            CacheBuilder.newBuilder().maximumSize(PARSE_CACHE_SIZE).build();
+
+    private static final Interner<CronPattern> INTERNER = Interners.newWeakInterner();
+
+    /**
+     * Parses a cron pattern. Results are cached by the pattern string
+     * after normalizing whitespace and letter case, and are interned
+     * so that equal patterns share one canonical instance. The returned
+     * pattern keeps the trimmed pattern string as its source. If the
+     * canonical instance was parsed from another string then the returned
+     * pattern is a copy that shares the tables of the canonical instance.
+     */
     public static CronPattern build(String pattern) throws ParseException {
-        return CronParser.parse(pattern);
+        Preconditions.checkNotNull(pattern, "pattern argument must be non-null");
+        String key = CronParser.normalize(pattern);
+        CronPattern canonical;
+        try {
+            canonical = PARSE_CACHE.get(key, () -> CronParser.parse(pattern).intern());
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            Throwables.propagateIfInstanceOf(ex.getCause(), ParseException.class);
+            throw Throwables.propagate(ex.getCause());
+        }
+        return canonical.withSource(pattern.trim());
     }
 
     CronPattern() {
@@ -70,6 +129,8 @@ public class CronPattern {
         this.dayOfMonth = DAYOFMONTH.interval();
         this.month = MONTH.interval();
         this.dayOfWeek = DAYOFWEEK.interval();
+        this.days = new DayTable(month, dayOfMonth, dayOfWeek);
+        this.minutes = new MinuteTable(minute, hour);
         this.isEmpty = true;
         this.source = CronParser.print(this);
     }
@@ -80,14 +141,71 @@ public class CronPattern {
         this.dayOfMonth = DAYOFMONTH.validate(dayOfMonth);
         this.month = MONTH.validate(month);
         this.dayOfWeek = DAYOFWEEK.validate(dayOfWeek);
+        this.days = new DayTable(this.month, this.dayOfMonth, this.dayOfWeek);
+        this.minutes = new MinuteTable(this.minute, this.hour);
         this.isEmpty = calculateIsEmpty();
         this.source = (source != null) ? source : CronParser.print(this);
     }
 
+    /**
+     * Copies the pattern with another source string.
+     * The intervals and lookup tables are shared.
+     */
+    private CronPattern(CronPattern pattern, String source) {
+        this.minute = pattern.minute;
+        this.hour = pattern.hour;
+        this.dayOfMonth = pattern.dayOfMonth;
+        this.month = pattern.month;
+        this.dayOfWeek = pattern.dayOfWeek;
+        this.days = pattern.days;
+        this.minutes = pattern.minutes;
+        this.isEmpty = pattern.isEmpty;
+        this.source = source;
+    }
+
     public boolean isEmpty() {
         return isEmpty;
     }
 
+    /**
+     * Returns this pattern if its source is the given string
+     * and otherwise a copy with the given source.
+     */
+    CronPattern withSource(String source) {
+        return this.source.equals(source) ? this : new CronPattern(this, source);
+    }
+
+    /**
+     * Returns a canonical instance of the pattern. For any two
+     * patterns {@code a.intern() == b.intern()} if and only if
+     * {@code a.equals(b)}.
+     */
+    public CronPattern intern() {
+        return INTERNER.intern(this);
+    }
+
+    /**
+     * Two patterns are equal if they enable the same indices for all
+     * time periods. The source strings of the patterns are not compared.
+     */
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        } else if (!(other instanceof CronPattern)) {
+            return false;
+        }
+        CronPattern pattern = (CronPattern) other;
+        return minute.equals(pattern.minute) && hour.equals(pattern.hour) &&
+               dayOfMonth.equals(pattern.dayOfMonth) && month.equals(pattern.month) &&
+               dayOfWeek.equals(pattern.dayOfWeek);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minute, hour, dayOfMonth, month, dayOfWeek);
+    }
+
     public boolean matches(Temporal candidate) {
         if (isEmpty()) {
             return false;
@@ -164,7 +282,7 @@ public class CronPattern {
             LocalDateTime localOutput = next(input.toLocalDateTime(), inclusive);
             return outputAdjustDaylightSavings(localOutput, input.getZone());
         } else {
-            return (ZonedDateTime) nextTemporal(input, inclusive);
+            return nextAcrossTransition(input, inclusive, (ZonedDateTime) nextTemporal(input, inclusive));
         }
     }
 
@@ -198,10 +316,306 @@ public class CronPattern {
             LocalDateTime localOutput = previous(input.toLocalDateTime(), inclusive);
             return outputAdjustDaylightSavings(localOutput, input.getZone());
         } else {
-            return (ZonedDateTime) previousTemporal(input, inclusive);
+            return previousAcrossTransition(input, inclusive, (ZonedDateTime) previousTemporal(input, inclusive));
         }
     }
 
+    /**
+     * Return the next epoch minute the pattern will fire. An epoch minute is
+     * the number of minutes since 1970-01-01T00:00 on the local wall clock,
+     * ie. {@code LocalDateTime.toEpochSecond(ZoneOffset.UTC) / 60}.
+     * This method does not allocate.
+     *
+     * @param epochMinute input epoch minute
+     * @param inclusive   if true then test input epoch minute
+     * @return next epoch minute the pattern will fire or {@link #NO_MATCH}
+     */
+    public long nextEpochMinute(long epochMinute, boolean inclusive) {
+        return nextLocalMinute(inclusive ? epochMinute : (epochMinute + 1));
+    }
+
+    /**
+     * Return the previous epoch minute the pattern did fire.
+     * See {@link #nextEpochMinute(long, boolean)} for the definition
+     * of an epoch minute. This method does not allocate.
+     *
+     * @param epochMinute input epoch minute
+     * @param inclusive   if true then test input epoch minute
+     * @return previous epoch minute the pattern did fire or {@link #NO_MATCH}
+     */
+    public long previousEpochMinute(long epochMinute, boolean inclusive) {
+        return previousLocalMinute(inclusive ? epochMinute : (epochMinute - 1));
+    }
+
+    /**
+     * Return the next instant the pattern will fire in a fixed offset.
+     * Firings are always aligned to the start of a minute. If inclusive
+     * is true then the result may be equal to the input. This method
+     * does not allocate.
+     *
+     * @param epochMilli  input instant in milliseconds since the epoch
+     * @param offset      offset of the local wall clock
+     * @param inclusive   if true then test input instant
+     * @return next firing in milliseconds since the epoch or {@link #NO_MATCH}
+     */
+    public long nextEpochMilli(long epochMilli, ZoneOffset offset, boolean inclusive) {
+        Preconditions.checkNotNull(offset, "offset argument must be non-null");
+        long offsetMillis = offset.getTotalSeconds() * 1000L;
+        long localMillis = epochMilli + offsetMillis;
+        long localMinute = inclusive ? EpochCalendar.ceilDiv(localMillis, MILLIS_PER_MINUTE) :
+                           (Math.floorDiv(localMillis, MILLIS_PER_MINUTE) + 1);
+        long result = nextLocalMinute(localMinute);
+        return (result == NO_MATCH) ? NO_MATCH : (result * MILLIS_PER_MINUTE - offsetMillis);
+    }
+
+    /**
+     * Return the previous instant the pattern did fire in a fixed offset.
+     * Firings are always aligned to the start of a minute. If inclusive
+     * is true then the result may be equal to the input. This method
+     * does not allocate.
+     *
+     * @param epochMilli  input instant in milliseconds since the epoch
+     * @param offset      offset of the local wall clock
+     * @param inclusive   if true then test input instant
+     * @return previous firing in milliseconds since the epoch or {@link #NO_MATCH}
+     */
+    public long previousEpochMilli(long epochMilli, ZoneOffset offset, boolean inclusive) {
+        Preconditions.checkNotNull(offset, "offset argument must be non-null");
+        long offsetMillis = offset.getTotalSeconds() * 1000L;
+        long localMillis = epochMilli + offsetMillis;
+        long localMinute = inclusive ? Math.floorDiv(localMillis, MILLIS_PER_MINUTE) :
+                           (EpochCalendar.ceilDiv(localMillis, MILLIS_PER_MINUTE) - 1);
+        long result = previousLocalMinute(localMinute);
+        return (result == NO_MATCH) ? NO_MATCH : (result * MILLIS_PER_MINUTE - offsetMillis);
+    }
+
+    /**
+     * Return the next instant the pattern will fire in a time zone.
+     * Firings are always aligned to the start of a minute. Daylight
+     * savings transitions are handled with the same rules as
+     * {@link #next(ZonedDateTime, boolean)}. Patterns that run at a
+     * specific hour and minute fire once in an overlap transition and
+     * fire at the end of a gap transition for times inside the gap.
+     * Other patterns fire at each instant with a matching wall clock.
+     * Fixed offset zones do not allocate. Other zones look up the
+     * zone rules once per transition crossed by the search.
+     *
+     * @param epochMilli  input instant in milliseconds since the epoch
+     * @param zone        time zone of the local wall clock
+     * @param inclusive   if true then test input instant
+     * @return next firing in milliseconds since the epoch or {@link #NO_MATCH}
+     */
+    public long nextEpochMilli(long epochMilli, ZoneId zone, boolean inclusive) {
+        Preconditions.checkNotNull(zone, "zone argument must be non-null");
+        ZoneRules rules = zone.getRules();
+        if (rules.isFixedOffset()) {
+            return nextEpochMilli(epochMilli, rules.getOffset(Instant.EPOCH), inclusive);
+        } else if (isEmpty()) {
+            return NO_MATCH;
+        }
+        boolean wallClock = handleZoneTransition();
+        long instant = inclusive ? epochMilli : (epochMilli + 1);
+        if (wallClock) {
+            ZoneOffsetTransition previous = rules.previousTransition(Instant.ofEpochMilli(instant + 1));
+            if ((previous != null) && previous.isOverlap()) {
+                long secondInstanceEnd = previous.toEpochSecond() * 1000L + overlapMillis(previous);
+                if (instant < secondInstanceEnd) {
+                    instant = secondInstanceEnd;
+                }
+            }
+        }
+        while (true) {
+            Instant probe = Instant.ofEpochMilli(instant);
+            long offsetMillis = rules.getOffset(probe).getTotalSeconds() * 1000L;
+            ZoneOffsetTransition transition = rules.nextTransition(probe);
+            long match = nextLocalMinute(EpochCalendar.ceilDiv(instant + offsetMillis, MILLIS_PER_MINUTE));
+            long result = match * MILLIS_PER_MINUTE - offsetMillis;
+            long transitionMillis = (transition == null) ? Long.MAX_VALUE : transition.toEpochSecond() * 1000L;
+            if (result < transitionMillis) {
+                return result;
+            } else if (transition.isGap()) {
+                long gapEnd = transitionMillis + transition.getOffsetAfter().getTotalSeconds() * 1000L;
+                if (wallClock && (match * MILLIS_PER_MINUTE < gapEnd)) {
+                    return transitionMillis;
+                }
+                instant = transitionMillis;
+            } else {
+                instant = wallClock ? (transitionMillis + overlapMillis(transition)) : transitionMillis;
+            }
+        }
+    }
+
+    /**
+     * Return the previous instant the pattern did fire in a time zone.
+     * Firings are always aligned to the start of a minute. See
+     * {@link #nextEpochMilli(long, ZoneId, boolean)} for the
+     * handling of daylight savings transitions.
+     *
+     * @param epochMilli  input instant in milliseconds since the epoch
+     * @param zone        time zone of the local wall clock
+     * @param inclusive   if true then test input instant
+     * @return previous firing in milliseconds since the epoch or {@link #NO_MATCH}
+     */
+    public long previousEpochMilli(long epochMilli, ZoneId zone, boolean inclusive) {
+        Preconditions.checkNotNull(zone, "zone argument must be non-null");
+        ZoneRules rules = zone.getRules();
+        if (rules.isFixedOffset()) {
+            return previousEpochMilli(epochMilli, rules.getOffset(Instant.EPOCH), inclusive);
+        } else if (isEmpty()) {
+            return NO_MATCH;
+        }
+        boolean wallClock = handleZoneTransition();
+        long instant = inclusive ? epochMilli : (epochMilli - 1);
+        while (true) {
+            long offsetMillis = rules.getOffset(Instant.ofEpochMilli(instant)).getTotalSeconds() * 1000L;
+            ZoneOffsetTransition transition = rules.previousTransition(Instant.ofEpochMilli(instant + 1));
+            long match = previousLocalMinute(Math.floorDiv(instant + offsetMillis, MILLIS_PER_MINUTE));
+            long result = match * MILLIS_PER_MINUTE - offsetMillis;
+            long transitionMillis = (transition == null) ? Long.MIN_VALUE : transition.toEpochSecond() * 1000L;
+            if (result >= transitionMillis) {
+                if (wallClock && transition != null && transition.isOverlap() &&
+                    (result < transitionMillis + overlapMillis(transition))) {
+                    // second instance of the duplicated time period
+                    instant = transitionMillis - 1;
+                } else {
+                    return result;
+                }
+            } else if (wallClock && transition.isGap() &&
+                       (match * MILLIS_PER_MINUTE >= transitionMillis +
+                                                     transition.getOffsetBefore().getTotalSeconds() * 1000L)) {
+                return transitionMillis;
+            } else {
+                instant = transitionMillis - 1;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of times the pattern will fire in the range
+     * [start, end) without enumerating the firings. The count is the
+     * number of matching days multiplied by the number of matching
+     * minutes in a day, with corrections for partial days at the edges
+     * of the range and at daylight savings transitions. The result is
+     * equal to the size of {@link #fireTimes(ZonedDateTime, ZonedDateTime)}.
+     * The cost is proportional to the number of months and transitions
+     * in the range.
+     *
+     * @param start   inclusive lower bound
+     * @param end     exclusive upper bound
+     * @param zone    time zone of the local wall clock
+     * @return number of firings in the range
+     */
+    public long countFirings(Instant start, Instant end, ZoneId zone) {
+        Preconditions.checkNotNull(start, "start argument must be non-null");
+        Preconditions.checkNotNull(end, "end argument must be non-null");
+        Preconditions.checkNotNull(zone, "zone argument must be non-null");
+        long startMillis = start.toEpochMilli();
+        long endMillis = end.toEpochMilli();
+        if (isEmpty() || startMillis >= endMillis) {
+            return 0;
+        }
+        ZoneRules rules = zone.getRules();
+        boolean wallClock = handleZoneTransition();
+        long count = 0;
+        long segmentStart = startMillis;
+        while (true) {
+            Instant probe = Instant.ofEpochMilli(segmentStart);
+            long offsetMillis = rules.getOffset(probe).getTotalSeconds() * 1000L;
+            ZoneOffsetTransition transition = rules.nextTransition(probe);
+            long transitionMillis = (transition == null) ? Long.MAX_VALUE : transition.toEpochSecond() * 1000L;
+            long segmentEnd = Math.min(endMillis, transitionMillis);
+            long localStart = EpochCalendar.ceilDiv(segmentStart + offsetMillis, MILLIS_PER_MINUTE);
+            long localEnd = EpochCalendar.ceilDiv(segmentEnd + offsetMillis, MILLIS_PER_MINUTE);
+            count += countLocalMinutes(localStart, localEnd);
+            if (wallClock) {
+                // the second instance of an overlap transition does not fire
+                ZoneOffsetTransition previous = rules.previousTransition(Instant.ofEpochMilli(segmentStart + 1));
+                if ((previous != null) && previous.isOverlap()) {
+                    long secondInstanceEnd = EpochCalendar.ceilDiv(
+                            previous.toEpochSecond() * 1000L + overlapMillis(previous) + offsetMillis,
+                            MILLIS_PER_MINUTE);
+                    count -= countLocalMinutes(localStart, Math.min(localEnd, secondInstanceEnd));
+                }
+            }
+            if (segmentEnd == endMillis) {
+                return count;
+            }
+            if (wallClock && transition.isGap()) {
+                // firings inside the gap are moved to the end of the transition
+                long gapStart = EpochCalendar.ceilDiv(transitionMillis + offsetMillis, MILLIS_PER_MINUTE);
+                long gapEnd = EpochCalendar.ceilDiv(
+                        transitionMillis + transition.getOffsetAfter().getTotalSeconds() * 1000L,
+                        MILLIS_PER_MINUTE);
+                if ((countLocalMinutes(gapStart, gapEnd) > 0) && !localMinuteMatches(gapEnd)) {
+                    count++;
+                }
+            }
+            segmentStart = transitionMillis;
+        }
+    }
+
+    /**
+     * Returns the number of matching epoch minutes in the range [from, to).
+     * See {@link #nextEpochMinute(long, boolean)} for the definition of an
+     * epoch minute.
+     */
+    long countLocalMinutes(long from, long to) {
+        if (from >= to) {
+            return 0;
+        }
+        long fromDay = EpochCalendar.epochDay(from);
+        long toDay = EpochCalendar.epochDay(to);
+        int fromMinute = EpochCalendar.minuteOfDay(from);
+        int toMinute = EpochCalendar.minuteOfDay(to);
+        if (fromDay == toDay) {
+            return days.test(fromDay) ? minutes.count(fromMinute, toMinute) : 0;
+        }
+        long count = days.test(fromDay) ? minutes.count(fromMinute, MINUTES_PER_DAY) : 0;
+        count += days.countDays(fromDay + 1, toDay) * minutes.cardinality();
+        count += days.test(toDay) ? minutes.count(0, toMinute) : 0;
+        return count;
+    }
+
+    private boolean localMinuteMatches(long localMinute) {
+        return days.test(EpochCalendar.epochDay(localMinute)) &&
+               minutes.test(EpochCalendar.minuteOfDay(localMinute));
+    }
+
+    /**
+     * Returns a lazy stream of the times the pattern will fire in the
+     * range [start, end). Firings are aligned to the start of a minute
+     * and are in the time zone of the start argument. See
+     * {@link #nextEpochMilli(long, ZoneId, boolean)} for the handling of
+     * daylight savings transitions. The stream may be parallelized;
+     * it is split at the start of local days.
+     *
+     * @param start   inclusive lower bound
+     * @param end     exclusive upper bound
+     * @return stream of firings in ascending order
+     */
+    public Stream<ZonedDateTime> fireTimes(ZonedDateTime start, ZonedDateTime end) {
+        return StreamSupport.stream(fireTimeSpliterator(start, end), false);
+    }
+
+    /**
+     * Returns a lazy iterator of the times the pattern will fire in the
+     * range [start, end). See {@link #fireTimes(ZonedDateTime, ZonedDateTime)}.
+     *
+     * @param start   inclusive lower bound
+     * @param end     exclusive upper bound
+     * @return iterator of firings in ascending order
+     */
+    public Iterator<ZonedDateTime> fireTimeIterator(ZonedDateTime start, ZonedDateTime end) {
+        return Spliterators.iterator(fireTimeSpliterator(start, end));
+    }
+
+    private Spliterator<ZonedDateTime> fireTimeSpliterator(ZonedDateTime start, ZonedDateTime end) {
+        Preconditions.checkNotNull(start, "start argument must be non-null");
+        Preconditions.checkNotNull(end, "end argument must be non-null");
+        return new FireTimeSpliterator(this, start.getZone(), start.toInstant().toEpochMilli(),
+                                       end.toInstant().toEpochMilli());
+    }
+
     /**
      * Returns a cron pattern with all indices set to value.
      */
@@ -234,45 +648,15 @@ public class CronPattern {
         return setInterval(period, new Interval.Builder(getInterval(period)).setIndex(index, value).build());
     }
 
-    /**
-     * Return true if the dayOfWeek, month, and dayOfMonth fields
-     * cannot generate a valid date.
-     */
-    private boolean invalidDays() {
-        if (!dayOfWeek.isFull() || month.isFull() || dayOfMonth.isFull()) {
-            return false;
-        } else {
-            Iterator<Integer> monthIterator = month.indexIterator();
-            while (monthIterator.hasNext()) {
-                int currentMonth = monthIterator.next();
-                Iterator<Integer> dayIterator = dayOfMonth.indexIterator();
-                while (dayIterator.hasNext()) {
-                    int currentDay = dayIterator.next();
-                    try {
-                        MonthDay.of(currentMonth, currentDay);
-                        return false;
-                    } catch (DateTimeException ignored) {}
-                }
-            }
-            return true;
-        }
-    }
-
     private boolean calculateIsEmpty() {
-        if (minute.isEmpty() || hour.isEmpty() || month.isEmpty()) {
-            return true;
-        } else {
-            boolean emptyDays = dayOfWeek.isEmpty() && dayOfMonth.isEmpty();
-            return (emptyDays || invalidDays());
-        }
+        return minutes.isEmpty() || days.isEmpty();
     }
 
     /**
      * Returns true of the minute and hour components of a pattern are matching.
      */
     private boolean minuteHourMatches(Temporal candidate) {
-        return minute.test(candidate.get(ChronoField.MINUTE_OF_HOUR)) &&
-               hour.test(candidate.get(ChronoField.HOUR_OF_DAY));
+        return minutes.test(candidate.get(ChronoField.MINUTE_OF_DAY));
     }
 
     /**
@@ -280,18 +664,31 @@ public class CronPattern {
      * (month, dayOfMonth, and dayOfWeek) are matching.
      */
     private boolean dayMatches(Temporal candidate) {
-        if (!month.test(candidate.get(ChronoField.MONTH_OF_YEAR))) {
+        // joda time uses the ISO definitions, where 1 is Monday and 7 is Sunday.
+        return dayMatches(candidate.get(ChronoField.MONTH_OF_YEAR),
+                          candidate.get(ChronoField.DAY_OF_MONTH),
+                          candidate.get(ChronoField.DAY_OF_WEEK) % 7);
+    }
+
+    /**
+     * Returns true if the day-related components of a pattern
+     * match the epoch day.
+     */
+    private boolean dayMatches(long epochDay) {
+        return days.test(epochDay);
+    }
+
+    private boolean dayMatches(int monthValue, int dayOfMonthValue, int dayOfWeekValue) {
+        if (!month.test(monthValue)) {
             return false;
         } else if (dayOfMonth.isFull() && dayOfWeek.isFull()) {
             return true;
         } else if (dayOfMonth.isFull()) {
-            // joda time uses the ISO definitions, where 1 is Monday and 7 is Sunday.
-            return dayOfWeek.test(candidate.get(ChronoField.DAY_OF_WEEK) % 7);
+            return dayOfWeek.test(dayOfWeekValue);
         } else if (dayOfWeek.isFull()) {
-            return dayOfMonth.test(candidate.get(ChronoField.DAY_OF_MONTH));
+            return dayOfMonth.test(dayOfMonthValue);
         } else {
-            return dayOfWeek.test(candidate.get(ChronoField.DAY_OF_WEEK) % 7) ||
-                   dayOfMonth.test(candidate.get(ChronoField.DAY_OF_MONTH));
+            return dayOfWeek.test(dayOfWeekValue) || dayOfMonth.test(dayOfMonthValue);
         }
     }
 
@@ -301,33 +698,17 @@ public class CronPattern {
      * return null.
      */
     private Temporal nextSameDay(Temporal input, boolean inclusive) {
-        Temporal output = input;
-        if (!dayMatches(output)) {
+        if (!dayMatches(input)) {
             return null;
         }
-        Integer nextMinute = minute.next(output.get(ChronoField.MINUTE_OF_HOUR), inclusive);
-        if (nextMinute != null) {
-            output = output.with(ChronoField.MINUTE_OF_HOUR, nextMinute);
-        } else {
-            output = output.plus(1, ChronoUnit.HOURS);
-            if (output.getLong(ChronoField.EPOCH_DAY) != input.getLong(ChronoField.EPOCH_DAY)) {
-                return null;
-            }
-        }
-        if (!input.equals(output)) {
-            inclusive = true;
-        }
-        int inputHour = input.get(ChronoField.HOUR_OF_DAY);
-        Integer nextHour = hour.next(output.get(ChronoField.HOUR_OF_DAY), inclusive);
-        if (nextHour != null) {
-            output = output.with(ChronoField.HOUR_OF_DAY, nextHour);
-            if (inputHour != nextHour) {
-                int newMinute = minute.next(0, true);
-                output = output.with(ChronoField.MINUTE_OF_HOUR, newMinute);
-            }
-            return output;
-        } else {
+        int minuteOfDay = input.get(ChronoField.MINUTE_OF_DAY);
+        int nextMinute = minutes.next(inclusive ? minuteOfDay : (minuteOfDay + 1));
+        if (nextMinute == -1) {
             return null;
+        } else if (nextMinute == minuteOfDay) {
+            return input;
+        } else {
+            return input.with(ChronoField.MINUTE_OF_DAY, nextMinute);
         }
     }
 
@@ -337,41 +718,25 @@ public class CronPattern {
      * return null.
      */
     private Temporal previousSameDay(Temporal input, boolean inclusive) {
-        Temporal output = input;
-        if (!dayMatches(output)) {
+        if (!dayMatches(input)) {
             return null;
         }
-        Integer previousMinute = minute.previous(output.get(ChronoField.MINUTE_OF_HOUR), inclusive);
-        if (previousMinute != null) {
-            output = output.with(ChronoField.MINUTE_OF_HOUR, previousMinute);
-        } else {
-            output = output.minus(1, ChronoUnit.HOURS);
-            if (output.getLong(ChronoField.EPOCH_DAY) != input.getLong(ChronoField.EPOCH_DAY)) {
-                return null;
-            }
-        }
-        if (!input.equals(output)) {
-            inclusive = true;
-        }
-        int inputHour = input.get(ChronoField.HOUR_OF_DAY);
-        Integer previousHour = hour.previous(output.get(ChronoField.HOUR_OF_DAY), inclusive);
-        if (previousHour != null) {
-            output = output.with(ChronoField.HOUR_OF_DAY, previousHour);
-            if (inputHour != previousHour) {
-                int newMinute = minute.previous(59, true);
-                output = output.with(ChronoField.MINUTE_OF_HOUR, newMinute);
-            }
-            return output;
-        } else {
+        int minuteOfDay = input.get(ChronoField.MINUTE_OF_DAY);
+        int previousMinute = minutes.previous(inclusive ? minuteOfDay : (minuteOfDay - 1));
+        if (previousMinute == -1) {
             return null;
+        } else if (previousMinute == minuteOfDay) {
+            return input;
+        } else {
+            return input.with(ChronoField.MINUTE_OF_DAY, previousMinute);
         }
     }
 
     /**
      * Find the next temporal match. First test for a match on the same day
      * as the input day. If no match is found on the same day then it is
-     * safe to set the hour and minute fields to the first legal values,
-     * and then begin iterating through the days.
+     * safe to set the hour and minute fields to the first legal values
+     * of the next matching day.
      */
     private Temporal nextTemporal(Temporal input, boolean inclusive) {
         if (isEmpty()) {
@@ -384,24 +749,18 @@ public class CronPattern {
         if (sameDayOutput != null) {
             return sameDayOutput;
         }
-        Temporal output = input.plus(1, ChronoUnit.DAYS)
-                             .with(ChronoField.HOUR_OF_DAY, hour.next(0, true))
-                             .with(ChronoField.MINUTE_OF_HOUR, minute.next(0, true));
-        while (true) {
-            assert(minuteHourMatches(output));
-            if (dayMatches(output)) {
-                return output;
-            } else {
-                output = output.plus(1, ChronoUnit.DAYS);
-            }
-        }
+        long nextDay = days.nextDay(input.getLong(ChronoField.EPOCH_DAY) + 1);
+        Temporal output = input.with(ChronoField.EPOCH_DAY, nextDay)
+                               .with(ChronoField.MINUTE_OF_DAY, minutes.next(0));
+        assert(minuteHourMatches(output) && dayMatches(output));
+        return output;
     }
 
     /**
      * Find the previous temporal match. First test for a match on the same day
      * as the input day. If no match is found on the same day then it is
-     * safe to set the hour and minute fields to the last legal values,
-     * and then begin iterating through the days.
+     * safe to set the hour and minute fields to the last legal values
+     * of the previous matching day.
      */
     private Temporal previousTemporal(Temporal input, boolean inclusive) {
         Preconditions.checkNotNull(input, "input argument must be non-null");
@@ -415,19 +774,57 @@ public class CronPattern {
         if (sameDayOutput != null) {
             return sameDayOutput;
         }
-        Temporal output = input.minus(1, ChronoUnit.DAYS)
-                       .with(ChronoField.HOUR_OF_DAY, hour.previous(23, true))
-                       .with(ChronoField.MINUTE_OF_HOUR, minute.previous(59, true));
-        while (true) {
-            assert(minuteHourMatches(output));
-            if (dayMatches(output)) {
-                return output;
-            } else {
-                output = output.minus(1, ChronoUnit.DAYS);
+        long previousDay = days.previousDay(input.getLong(ChronoField.EPOCH_DAY) - 1);
+        Temporal output = input.with(ChronoField.EPOCH_DAY, previousDay)
+                               .with(ChronoField.MINUTE_OF_DAY, minutes.previous(MINUTES_PER_DAY - 1));
+        assert(minuteHourMatches(output) && dayMatches(output));
+        return output;
+    }
+
+    /**
+     * Returns the first epoch minute greater than or equal to the
+     * input epoch minute that matches the pattern.
+     */
+    private long nextLocalMinute(long localMinute) {
+        if (isEmpty()) {
+            return NO_MATCH;
+        }
+        long epochDay = EpochCalendar.epochDay(localMinute);
+        int minuteOfDay = EpochCalendar.minuteOfDay(localMinute);
+        if (dayMatches(epochDay)) {
+            int result = minutes.next(minuteOfDay);
+            if (result != -1) {
+                return epochDay * MINUTES_PER_DAY + result;
+            }
+        }
+        epochDay = days.nextDay(epochDay + 1);
+        return epochDay * MINUTES_PER_DAY + minutes.next(0);
+    }
+
+    /**
+     * Returns the last epoch minute less than or equal to the
+     * input epoch minute that matches the pattern.
+     */
+    private long previousLocalMinute(long localMinute) {
+        if (isEmpty()) {
+            return NO_MATCH;
+        }
+        long epochDay = EpochCalendar.epochDay(localMinute);
+        int minuteOfDay = EpochCalendar.minuteOfDay(localMinute);
+        if (dayMatches(epochDay)) {
+            int result = minutes.previous(minuteOfDay);
+            if (result != -1) {
+                return epochDay * MINUTES_PER_DAY + result;
             }
         }
+        epochDay = days.previousDay(epochDay - 1);
+        return epochDay * MINUTES_PER_DAY + minutes.previous(MINUTES_PER_DAY - 1);
     }
 
+    private static long overlapMillis(ZoneOffsetTransition transition) {
+        return (transition.getOffsetBefore().getTotalSeconds() -
+                transition.getOffsetAfter().getTotalSeconds()) * 1000L;
+    }
 
     /**
      * Date Patterns that run at a specific hour and minute are affected
@@ -439,6 +836,56 @@ public class CronPattern {
         return (!hour.isFull() && !minute.isFull());
     }
 
+    /**
+     * The table scan resolves its output by local time. Across an overlap
+     * transition it steps over the second instance of the repeated local
+     * times, and a local time inside a gap transition is moved forward past
+     * the input of a backward search. If a transition lies between the input
+     * and the output, or the output is on the wrong side of the input, then
+     * search again on the instant timeline as
+     * {@link #nextEpochMilli(long, ZoneId, boolean)} does. The seconds
+     * of the input are kept as they are by the table scan.
+     */
+    private ZonedDateTime nextAcrossTransition(ZonedDateTime input, boolean inclusive,
+                                               @Nullable ZonedDateTime output) {
+        if (output == null) {
+            return null;
+        }
+        ZoneId zone = input.getZone();
+        ZoneOffsetTransition transition = zone.getRules().nextTransition(input.toInstant());
+        if ((transition == null) ||
+            (transition.getInstant().isAfter(output.toInstant()) &&
+             (inclusive ? !output.isBefore(input) : output.isAfter(input)))) {
+            return output;
+        }
+        Instant minute = input.toInstant().truncatedTo(ChronoUnit.MINUTES);
+        long result = nextEpochMilli(minute.toEpochMilli(), zone, false);
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(result).plus(Duration.between(minute, input.toInstant())),
+                                       zone);
+    }
+
+    /**
+     * See {@link #nextAcrossTransition(ZonedDateTime, boolean, ZonedDateTime)}.
+     */
+    private ZonedDateTime previousAcrossTransition(ZonedDateTime input, boolean inclusive,
+                                                   @Nullable ZonedDateTime output) {
+        if (output == null) {
+            return null;
+        }
+        ZoneId zone = input.getZone();
+        // includes a transition at the input
+        ZoneOffsetTransition transition = zone.getRules().previousTransition(input.toInstant().plusNanos(1));
+        if ((transition == null) ||
+            (transition.getInstant().isBefore(output.toInstant()) &&
+             (inclusive ? !output.isAfter(input) : output.isBefore(input)))) {
+            return output;
+        }
+        Instant minute = input.toInstant().truncatedTo(ChronoUnit.MINUTES);
+        long result = previousEpochMilli(minute.toEpochMilli(), zone, false);
+        return ZonedDateTime.ofInstant(Instant.ofEpochMilli(result).plus(Duration.between(minute, input.toInstant())),
+                                       zone);
+    }
+
     /**
      * If we are in the duplicated time period of an overlap transition,
      * then move forwards around the duplicated time period.
@@ -0,0 +1,344 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+import java.time.LocalDateTime;
+
+import com.addthis.cronus.internal.EpochCalendar;
+import com.addthis.cronus.internal.Interval;
+import com.addthis.cronus.internal.TimePeriod;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * An inverted index over a set of cron patterns that answers the question
+ * "which patterns fire at this local minute?" without testing each pattern.
+ * Every pattern added to the index is assigned an integer id. For each value
+ * of each time period the index keeps a bitmap of the ids of the patterns
+ * that enable the value. A lookup intersects one bitmap from each time
+ * period and costs O(N/64 + M) for N patterns and M matches.
+ *
+ * The dayOfMonth and dayOfWeek rule of {@link CronPattern#matches(java.time.temporal.Temporal)}
+ * is encoded at insertion time. A pattern votes in the dayOfMonth bitmaps
+ * unless only its dayOfMonth field is a wildcard, and votes in the dayOfWeek
+ * bitmaps unless only its dayOfWeek field is a wildcard. The day component
+ * of a lookup is then the union of the dayOfMonth and dayOfWeek bitmaps.
+ *
+ * Ids of removed patterns are reused by later insertions. The index is safe
+ * for concurrent use. Lookups proceed in parallel and are excluded only
+ * by insertions and removals.
+ */
+public class CronPatternIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private static final TimePeriod[] PERIODS = TimePeriod.values();
+
+    @Nonnull
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Bitmaps indexed by time period ordinal, then by value minus the
+     * minimum value of the time period, then by word of the bitmap.
+     */
+    @GuardedBy("lock")
+    private final long[][][] bitmaps = new long[PERIODS.length][][];
+
+    /**
+     * Bitmap of the ids that are currently assigned.
+     */
+    @GuardedBy("lock")
+    private long[] live;
+
+    @GuardedBy("lock")
+    private CronPattern[] patterns;
+
+    /**
+     * Stack of the ids below {@code highWater} that are not assigned.
+     */
+    @GuardedBy("lock")
+    private int[] freeIds;
+
+    @GuardedBy("lock")
+    private int freeCount;
+
+    /**
+     * One greater than the largest id that has ever been assigned.
+     */
+    @GuardedBy("lock")
+    private int highWater;
+
+    @GuardedBy("lock")
+    private int size;
+
+    public CronPatternIndex() {
+        int words = INITIAL_CAPACITY / Long.SIZE;
+        for (TimePeriod period : PERIODS) {
+            bitmaps[period.ordinal()] = new long[period.max - period.min + 1][words];
+        }
+        this.live = new long[words];
+        this.patterns = new CronPattern[INITIAL_CAPACITY];
+        this.freeIds = new int[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Adds a pattern to the index and returns the id assigned to it.
+     * A pattern may be added more than once and receives a distinct
+     * id each time.
+     */
+    public int add(@Nonnull CronPattern pattern) {
+        Preconditions.checkNotNull(pattern, "pattern argument must be non-null");
+        lock.writeLock().lock();
+        try {
+            int id;
+            if (freeCount > 0) {
+                id = freeIds[--freeCount];
+            } else {
+                if (highWater == patterns.length) {
+                    grow();
+                }
+                id = highWater++;
+            }
+            patterns[id] = pattern;
+            live[id >>> 6] |= (1L << id);
+            update(pattern, id, true);
+            size++;
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the pattern with the given id from the index.
+     * Returns false if the id is not assigned.
+     */
+    public boolean remove(int id) {
+        lock.writeLock().lock();
+        try {
+            if ((id < 0) || (id >= highWater) || (patterns[id] == null)) {
+                return false;
+            }
+            update(patterns[id], id, false);
+            patterns[id] = null;
+            live[id >>> 6] &= ~(1L << id);
+            freeIds[freeCount++] = id;
+            size--;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the pattern with the given id or null if the id is not assigned.
+     */
+    @Nullable
+    public CronPattern get(int id) {
+        lock.readLock().lock();
+        try {
+            return ((id < 0) || (id >= highWater)) ? null : patterns[id];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Invokes the action on the id of each pattern that matches the local
+     * date and time in increasing order of id. The seconds and nanoseconds
+     * of the input are ignored. The action must not modify the index.
+     */
+    public void forEachMatch(@Nonnull LocalDateTime time, @Nonnull IntConsumer action) {
+        Preconditions.checkNotNull(time, "time argument must be non-null");
+        forEachMatch(time.getMinute(), time.getHour(), time.getDayOfMonth(), time.getMonthValue(),
+                     time.getDayOfWeek().getValue() % 7, action);
+    }
+
+    /**
+     * Invokes the action on the id of each pattern that matches the local
+     * epoch minute in increasing order of id. A local epoch minute is the
+     * number of minutes from 1970-01-01T00:00 in local time.
+     * The action must not modify the index.
+     */
+    public void forEachMatch(long localEpochMinute, @Nonnull IntConsumer action) {
+        long epochDay = EpochCalendar.epochDay(localEpochMinute);
+        int minuteOfDay = EpochCalendar.minuteOfDay(localEpochMinute);
+        long date = EpochCalendar.toPackedDate(epochDay);
+        forEachMatch(minuteOfDay % EpochCalendar.MINUTES_PER_HOUR, minuteOfDay / EpochCalendar.MINUTES_PER_HOUR,
+                     EpochCalendar.dayOfMonth(date), EpochCalendar.month(date),
+                     EpochCalendar.dayOfWeek(epochDay), action);
+    }
+
+    /**
+     * Returns the patterns that match the local date and time in increasing order of id.
+     */
+    @Nonnull
+    public List<CronPattern> matches(@Nonnull LocalDateTime time) {
+        List<CronPattern> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            forEachMatch(time, (id) -> result.add(patterns[id]));
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * Returns the first local epoch minute in the range [from, to) that is
+     * matched by at least one pattern, or {@link CronPattern#NO_MATCH} if
+     * there is no such minute. Days and hours that no pattern matches are
+     * skipped with a single test each.
+     */
+    public long nextMatch(long from, long to) {
+        lock.readLock().lock();
+        try {
+            long minute = from;
+            while (minute < to) {
+                long epochDay = EpochCalendar.epochDay(minute);
+                int minuteOfDay = (int) (minute - epochDay * EpochCalendar.MINUTES_PER_DAY);
+                long date = EpochCalendar.toPackedDate(epochDay);
+                int dayOfMonth = EpochCalendar.dayOfMonth(date);
+                int month = EpochCalendar.month(date);
+                int dayOfWeek = EpochCalendar.dayOfWeek(epochDay);
+                if (!anyMatch(-1, -1, dayOfMonth, month, dayOfWeek)) {
+                    minute = (epochDay + 1) * EpochCalendar.MINUTES_PER_DAY;
+                    continue;
+                }
+                int hour = minuteOfDay / EpochCalendar.MINUTES_PER_HOUR;
+                if (!anyMatch(-1, hour, dayOfMonth, month, dayOfWeek)) {
+                    minute = epochDay * EpochCalendar.MINUTES_PER_DAY + (hour + 1) * EpochCalendar.MINUTES_PER_HOUR;
+                    continue;
+                }
+                if (anyMatch(minuteOfDay % EpochCalendar.MINUTES_PER_HOUR, hour, dayOfMonth, month, dayOfWeek)) {
+                    return minute;
+                }
+                minute++;
+            }
+            return CronPattern.NO_MATCH;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true if any pattern matches the fields. A minute
+     * or hour of -1 matches every value of the field.
+     */
+    @GuardedBy("lock")
+    private boolean anyMatch(int minute, int hour, int dayOfMonth, int month, int dayOfWeek) {
+        long[] minuteBits = (minute < 0) ? null : slot(TimePeriod.MINUTE, minute);
+        long[] hourBits = (hour < 0) ? null : slot(TimePeriod.HOUR, hour);
+        long[] dayOfMonthBits = slot(TimePeriod.DAYOFMONTH, dayOfMonth);
+        long[] monthBits = slot(TimePeriod.MONTH, month);
+        long[] dayOfWeekBits = slot(TimePeriod.DAYOFWEEK, dayOfWeek);
+        int words = (highWater + Long.SIZE - 1) >>> 6;
+        for (int i = 0; i < words; i++) {
+            long word = live[i] & monthBits[i] & (dayOfMonthBits[i] | dayOfWeekBits[i]);
+            if (hourBits != null) {
+                word &= hourBits[i];
+            }
+            if (minuteBits != null) {
+                word &= minuteBits[i];
+            }
+            if (word != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void forEachMatch(int minute, int hour, int dayOfMonth, int month, int dayOfWeek,
+                              IntConsumer action) {
+        Preconditions.checkNotNull(action, "action argument must be non-null");
+        lock.readLock().lock();
+        try {
+            long[] minuteBits = slot(TimePeriod.MINUTE, minute);
+            long[] hourBits = slot(TimePeriod.HOUR, hour);
+            long[] dayOfMonthBits = slot(TimePeriod.DAYOFMONTH, dayOfMonth);
+            long[] monthBits = slot(TimePeriod.MONTH, month);
+            long[] dayOfWeekBits = slot(TimePeriod.DAYOFWEEK, dayOfWeek);
+            int words = (highWater + Long.SIZE - 1) >>> 6;
+            for (int i = 0; i < words; i++) {
+                long word = live[i] & minuteBits[i] & hourBits[i] & monthBits[i] &
+                            (dayOfMonthBits[i] | dayOfWeekBits[i]);
+                while (word != 0) {
+                    action.accept((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= (word - 1);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private long[] slot(TimePeriod period, int value) {
+        return bitmaps[period.ordinal()][value - period.min];
+    }
+
+    @GuardedBy("lock")
+    private void update(CronPattern pattern, int id, boolean value) {
+        boolean dayOfMonthFull = pattern.getInterval(TimePeriod.DAYOFMONTH).isFull();
+        boolean dayOfWeekFull = pattern.getInterval(TimePeriod.DAYOFWEEK).isFull();
+        for (TimePeriod period : PERIODS) {
+            if ((period == TimePeriod.DAYOFMONTH) && dayOfMonthFull && !dayOfWeekFull) {
+                continue;
+            } else if ((period == TimePeriod.DAYOFWEEK) && dayOfWeekFull && !dayOfMonthFull) {
+                continue;
+            }
+            Interval interval = pattern.getInterval(period);
+            long bit = 1L << id;
+            int word = id >>> 6;
+            interval.forEach((index) -> {
+                long[] bits = slot(period, index);
+                bits[word] = value ? (bits[word] | bit) : (bits[word] & ~bit);
+            });
+        }
+    }
+
+    @GuardedBy("lock")
+    private void grow() {
+        int capacity = patterns.length * 2;
+        int words = capacity / Long.SIZE;
+        for (long[][] slots : bitmaps) {
+            for (int i = 0; i < slots.length; i++) {
+                slots[i] = Arrays.copyOf(slots[i], words);
+            }
+        }
+        live = Arrays.copyOf(live, words);
+        patterns = Arrays.copyOf(patterns, capacity);
+        freeIds = Arrays.copyOf(freeIds, capacity);
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import java.text.ParseException;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+
+/**
+ * Parses many cron patterns at once. The input is a sequence of lines
+ * with one pattern per line. Blank lines and lines that begin with
+ * {@code #} are ignored. Identical expressions (after normalizing
+ * whitespace and letter case) are parsed only once, and the distinct
+ * expressions are parsed in parallel on a fork-join pool. Parsing
+ * does not stop at the first error; every line that fails to parse
+ * is reported in the {@link Result} along with its line number. Use
+ * {@link Result#getPatternsByLine()} or {@link Result#getPattern(String)}
+ * to find the pattern of an input line in any of its spellings.
+ */
+public class CronPatternLoader {
+
+    @Nonnull
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates a loader that parses on the common fork-join pool.
+     */
+    public CronPatternLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public CronPatternLoader(@Nonnull ForkJoinPool pool) {
+        Preconditions.checkNotNull(pool, "pool argument must be non-null");
+        this.pool = pool;
+    }
+
+    /**
+     * Parses each line of the stream. Line numbers begin at 1 with
+     * the first element of the stream.
+     */
+    public Result load(@Nonnull Stream<String> lines) {
+        Preconditions.checkNotNull(lines, "lines argument must be non-null");
+        List<String> expressions = new ArrayList<>();
+        List<Integer> lineNumbers = new ArrayList<>();
+        Map<String, String> distinct = new LinkedHashMap<>();
+        int lineNumber = 0;
+        for (String line : (Iterable<String>) lines::iterator) {
+            lineNumber++;
+            String expression = line.trim();
+            if (expression.isEmpty() || expression.startsWith("#")) {
+                continue;
+            }
+            expressions.add(expression);
+            lineNumbers.add(lineNumber);
+            distinct.putIfAbsent(CronParser.normalize(expression), expression);
+        }
+        Map<String, Object> outcomes = new ConcurrentHashMap<>();
+        pool.submit(() -> distinct.entrySet().parallelStream().forEach(
+                entry -> outcomes.put(entry.getKey(), parse(entry.getValue())))).join();
+        ImmutableMap.Builder<String, CronPattern> patterns = ImmutableMap.builder();
+        ImmutableMap.Builder<String, CronPattern> normalized = ImmutableMap.builder();
+        ImmutableSortedMap.Builder<Integer, CronPattern> byLine = ImmutableSortedMap.naturalOrder();
+        ImmutableList.Builder<Failure> failures = ImmutableList.builder();
+        for (Map.Entry<String, String> entry : distinct.entrySet()) {
+            Object outcome = outcomes.get(entry.getKey());
+            if (outcome instanceof CronPattern) {
+                patterns.put(entry.getValue(), (CronPattern) outcome);
+                normalized.put(entry.getKey(), (CronPattern) outcome);
+            }
+        }
+        for (int i = 0; i < expressions.size(); i++) {
+            String expression = expressions.get(i);
+            Object outcome = outcomes.get(CronParser.normalize(expression));
+            if (outcome instanceof CronPattern) {
+                byLine.put(lineNumbers.get(i), ((CronPattern) outcome).withSource(expression));
+            } else if (outcome instanceof ParseException) {
+                failures.add(new Failure(lineNumbers.get(i), expression, (ParseException) outcome));
+            }
+        }
+        return new Result(patterns.build(), normalized.build(), byLine.build(), failures.build());
+    }
+
+    /**
+     * Parses each line of the reader. The reader is not closed.
+     */
+    public Result load(@Nonnull Reader reader) throws IOException {
+        Preconditions.checkNotNull(reader, "reader argument must be non-null");
+        BufferedReader buffered = (reader instanceof BufferedReader) ?
+                                  (BufferedReader) reader : new BufferedReader(reader);
+        try {
+            return load(buffered.lines());
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+    }
+
+    /**
+     * Parses each line of the UTF-8 encoded file.
+     */
+    public Result load(@Nonnull Path path) throws IOException {
+        Preconditions.checkNotNull(path, "path argument must be non-null");
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return load(reader);
+        }
+    }
+
+    private static Object parse(String expression) {
+        try {
+            return CronPattern.build(expression);
+        } catch (ParseException ex) {
+            return ex;
+        }
+    }
+
+    /**
+     * The outcome of a bulk load.
+     */
+    public static final class Result {
+
+        @Nonnull
+        private final ImmutableMap<String, CronPattern> patterns;
+
+        /**
+         * Parsed patterns keyed by normalized expression.
+         */
+        @Nonnull
+        private final ImmutableMap<String, CronPattern> normalized;
+
+        @Nonnull
+        private final ImmutableSortedMap<Integer, CronPattern> patternsByLine;
+
+        @Nonnull
+        private final ImmutableList<Failure> failures;
+
+        Result(ImmutableMap<String, CronPattern> patterns, ImmutableMap<String, CronPattern> normalized,
+               ImmutableSortedMap<Integer, CronPattern> patternsByLine, ImmutableList<Failure> failures) {
+            this.patterns = patterns;
+            this.normalized = normalized;
+            this.patternsByLine = patternsByLine;
+            this.failures = failures;
+        }
+
+        /**
+         * Returns the successfully parsed patterns keyed by expression.
+         * Each distinct expression appears once, in the order that it
+         * first appeared in the input and with its original spelling.
+         * Lines that spell the same expression differently (for example
+         * with other whitespace or letter case) have no key of their own.
+         * Use {@link #getPatternsByLine()} or {@link #getPattern(String)}
+         * to look up those lines.
+         */
+        @Nonnull
+        public ImmutableMap<String, CronPattern> getPatterns() {
+            return patterns;
+        }
+
+        /**
+         * Returns the pattern of every line that was parsed
+         * successfully keyed by line number. The source of each
+         * pattern is the expression on its line.
+         */
+        @Nonnull
+        public ImmutableSortedMap<Integer, CronPattern> getPatternsByLine() {
+            return patternsByLine;
+        }
+
+        /**
+         * Returns the pattern of an expression in any spelling that
+         * appeared in the input or null if the expression was not in
+         * the input or could not be parsed. Whitespace and letter case
+         * are normalized before the lookup.
+         */
+        @Nullable
+        public CronPattern getPattern(@Nonnull String expression) {
+            Preconditions.checkNotNull(expression, "expression argument must be non-null");
+            return normalized.get(CronParser.normalize(expression));
+        }
+
+        /**
+         * Returns one failure for every line that could not be parsed
+         * in order of line number.
+         */
+        @Nonnull
+        public ImmutableList<Failure> getFailures() {
+            return failures;
+        }
+
+        public boolean hasFailures() {
+            return !failures.isEmpty();
+        }
+    }
+
+    /**
+     * A line that could not be parsed.
+     */
+    public static final class Failure {
+
+        private final int lineNumber;
+
+        @Nonnull
+        private final String expression;
+
+        @Nonnull
+        private final ParseException exception;
+
+        Failure(int lineNumber, String expression, ParseException exception) {
+            this.lineNumber = lineNumber;
+            this.expression = expression;
+            this.exception = exception;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        @Nonnull
+        public String getExpression() {
+            return expression;
+        }
+
+        @Nonnull
+        public ParseException getException() {
+            return exception;
+        }
+
+        @Override
+        public String toString() {
+            return "line " + lineNumber + ": " + exception.getMessage() + " at offset " +
+                   exception.getErrorOffset() + " in \"" + expression + "\"";
+        }
+    }
+}
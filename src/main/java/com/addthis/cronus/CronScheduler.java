@@ -15,25 +15,44 @@ package com.addthis.cronus;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.ObjectName;
 
+import java.lang.management.ManagementFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
+import java.time.Clock;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.util.concurrent.AbstractService;
 import com.google.common.util.concurrent.Service;
 
@@ -69,18 +88,18 @@ public class CronScheduler extends AbstractService implements Service {
     private final ScheduledExecutorService executor;
 
     /**
-     * The lock does not guard the {@code preStartupFutures} object is the object
-     * itself is thread safe. Rather the lock guards the reference to the object.
-     * Acquiring the read lock grants read privileges to the reference and
-     * allows for modification of the object. Acquiring the write lock is used
-     * during {@link #doStart()} to set the reference to null.
+     * Set by {@link #doStart()} before it drains {@code preStartupFutures}.
+     * A job is handed to the executor by exactly one thread: the thread
+     * that removes it from {@code preStartupFutures}, or the thread that
+     * scheduled it if it observed this flag before adding the job.
      */
-    @Nonnull
-    private final ReadWriteLock preStartupFuturesLock;
+    private volatile boolean started;
 
-    @Nullable
-    @GuardedBy("preStartupFuturesLock")
-    private ConcurrentHashMap<CronFutureExternal<?>, CronRunnable> preStartupFutures;
+    /**
+     * Jobs registered before startup. Empty once the scheduler has started.
+     */
+    @Nonnull
+    private final ConcurrentHashMap<CronFutureExternal<?>, CronRunnable> preStartupFutures;
 
     @Nonnull
     private final ConcurrentHashMap<CronFutureExternal<?>, CronFutureInternal> futures;
@@ -88,6 +107,99 @@ public class CronScheduler extends AbstractService implements Service {
     @Nonnull
     private final Duration shutdownWait;
 
+    /**
+     * Runs the tasks of the patterns. Either the scheduled executor
+     * itself or a separate executor supplied by the client.
+     */
+    @Nonnull
+    private final Executor executionExecutor;
+
+    /**
+     * True if the execution executor was created by the
+     * builder and is shut down when the scheduler stops.
+     */
+    private final boolean ownsExecutionExecutor;
+
+    /**
+     * Non-null when the scheduler was built with {@link Dispatch#MINUTE_TICK}.
+     */
+    @Nullable
+    private final MinuteTickDispatcher dispatcher;
+
+    /**
+     * A firing that starts later than its scheduled time
+     * by more than the threshold is a misfire.
+     */
+    @Nonnull
+    private final Duration misfireThreshold;
+
+    @Nullable
+    private final MisfireListener misfireListener;
+
+    /**
+     * Either the listener of the client or an {@link AsyncListener} that wraps it.
+     */
+    @Nullable
+    private final CronSchedulerListener listener;
+
+    @Nullable
+    private final AsyncListener asyncListener;
+
+    /**
+     * Non-null if flight recorder events are enabled and supported by the runtime.
+     */
+    @Nullable
+    private final JfrEvents jfr;
+
+    /**
+     * Number of runs of all jobs that are in progress. Null unless
+     * flight recorder events or JMX statistics are enabled, so that
+     * runs do not update a shared counter when nothing reads it.
+     */
+    @Nullable
+    private final LongAdder activeRuns;
+
+    /**
+     * Name of the scheduler in JMX or null if the scheduler is not registered.
+     */
+    @Nullable
+    private final String jmxName;
+
+    /**
+     * Non-null if the scheduler is registered with JMX.
+     */
+    @Nullable
+    private final SchedulerStats stats;
+
+    /**
+     * JMX names of the registered named jobs.
+     */
+    @Nonnull
+    private final ConcurrentHashMap<CronFutureExternal<?>, ObjectName> jobBeans = new ConcurrentHashMap<>();
+
+    @Nonnull
+    private final Clock clock;
+
+    /**
+     * True if the head of the queue of the scheduled executor is the next
+     * firing. The executor must be a {@link ScheduledThreadPoolExecutor}
+     * created by the builder that removes cancelled tasks, and the clock
+     * must be the system clock that the delays of the queue are measured by.
+     */
+    private final boolean nextDueFromQueue;
+
+    /**
+     * Firing lag of all jobs. Non-null if the scheduler records latency.
+     */
+    @Nullable
+    private final LatencyHistogram lagHistogram;
+
+    /**
+     * Run durations of all jobs. Non-null if the scheduler records latency.
+     */
+    @Nullable
+    private final LatencyHistogram durationHistogram;
+
     /**
      * Clients may either use this constructor to generate CronScheduler instances
      * or they may use the provided Builder class. Because (in our opinion) several
@@ -98,73 +210,313 @@ public class CronScheduler extends AbstractService implements Service {
      */
     public CronScheduler(@Nonnull ScheduledExecutorService scheduledExecutorService,
                          @Nonnull Duration shutdownWait) {
+        this(scheduledExecutorService, null, false, new Builder(1).setShutdownWait(shutdownWait));
+    }
+
+    /**
+     * Constructs a scheduler whose tasks run on a separate executor. The
+     * scheduled executor service only computes firing times and hands the
+     * tasks to the execution executor, so long running tasks do not delay
+     * the firing of other patterns. The execution executor is not shut down
+     * when the scheduler stops.
+     */
+    public CronScheduler(@Nonnull ScheduledExecutorService scheduledExecutorService,
+                         @Nonnull Executor executionExecutor,
+                         @Nonnull Duration shutdownWait) {
+        this(scheduledExecutorService, executionExecutor, false, new Builder(1).setShutdownWait(shutdownWait));
+        Preconditions.checkNotNull(executionExecutor, "executionExecutor argument must be non-null");
+    }
+
+    /**
+     * All settings other than the executors are read from the builder.
+     */
+    CronScheduler(@Nonnull ScheduledExecutorService scheduledExecutorService,
+                          @Nullable Executor executionExecutor, boolean ownsExecutionExecutor,
+                          @Nonnull Builder builder) {
+        this(scheduledExecutorService, executionExecutor, ownsExecutionExecutor, false, builder);
+    }
+
+    private CronScheduler(@Nonnull ScheduledExecutorService scheduledExecutorService,
+                          @Nullable Executor executionExecutor, boolean ownsExecutionExecutor,
+                          boolean ownsScheduledExecutor, @Nonnull Builder builder) {
         Preconditions.checkNotNull(scheduledExecutorService, "scheduledExecutorService argument must be non-null");
-        Preconditions.checkNotNull(shutdownWait, "shutdownWait argument must be non-null");
         this.executor = scheduledExecutorService;
         this.futures = new ConcurrentHashMap<>();
         this.preStartupFutures = new ConcurrentHashMap<>();
-        this.preStartupFuturesLock = new ReentrantReadWriteLock();
-        this.shutdownWait = shutdownWait;
+        this.shutdownWait = builder.shutdownWait;
+        this.executionExecutor = (executionExecutor != null) ? executionExecutor : scheduledExecutorService;
+        this.ownsExecutionExecutor = ownsExecutionExecutor && (executionExecutor instanceof ExecutorService);
+        this.clock = builder.clock;
+        this.nextDueFromQueue = ownsScheduledExecutor && builder.removeOnCancel &&
+                                clock.equals(Clock.system(clock.getZone()));
+        this.dispatcher = (builder.dispatch == Dispatch.MINUTE_TICK) ?
+                          new MinuteTickDispatcher(scheduledExecutorService, clock) : null;
+        this.misfireThreshold = builder.misfireThreshold;
+        this.misfireListener = builder.misfireListener;
+        if ((builder.listener != null) && (builder.asyncListenerCapacity > 0)) {
+            this.asyncListener = new AsyncListener(builder.listener, builder.asyncListenerCapacity);
+            this.listener = asyncListener;
+        } else {
+            this.asyncListener = null;
+            this.listener = builder.listener;
+        }
+        boolean recordLatency = builder.recordLatency || (builder.jmxName != null);
+        this.lagHistogram = recordLatency ? new LatencyHistogram() : null;
+        this.durationHistogram = recordLatency ? new LatencyHistogram() : null;
+        this.jmxName = builder.jmxName;
+        this.stats = (jmxName != null) ? new SchedulerStats(this) : null;
+        this.jfr = builder.flightRecorderEvents ? JfrSupport.create(this) : null;
+        this.activeRuns = ((jfr != null) || (stats != null)) ? new LongAdder() : null;
     }
 
     /**
      * Submits a cron pattern for execution. Any patterns submitted prior to startUp
      * are not executed until startUp is invoked. Patterns cannot be submitted after
-     * the scheduler has been shutdown. This method returns a {@link Future} object.
+     * the scheduler has been shutdown. This method returns a {@link Future} object
+     * that also implements {@link CronFuture}.
      * Invoking {@link Future#cancel(boolean)} will cancel any future executions of this
      * pattern. Invoking {@link Future#get()} will block indefinitely until the
      * task throws an exception and only if {@code stopOnFailure} is true.
      */
     public Future<?> schedule(CronPattern pattern, Runnable runnable, boolean stopOnFailure) {
+        return schedule(pattern, runnable, new JobOptions.Builder().setStopOnFailure(stopOnFailure).build());
+    }
+
+    /**
+     * Submits a cron pattern for execution with the given job options.
+     * See {@link #schedule(CronPattern, Runnable, boolean)}.
+     */
+    public Future<?> schedule(CronPattern pattern, Runnable runnable, JobOptions options) {
         Preconditions.checkNotNull(pattern, "pattern argument must be non-null");
         Preconditions.checkNotNull(runnable, "runnable argument must be non-null");
-        CronFutureExternal<?> key = new CronFutureExternal<>();
-        CronRunnable cronRunnable = new CronRunnable(pattern, runnable, key, stopOnFailure);
-        preStartupFuturesLock.readLock().lock();
+        Preconditions.checkNotNull(options, "options argument must be non-null");
+        checkNotStopped();
+        CronRunnable cronRunnable = newJob(pattern, runnable, options);
+        CronFutureExternal<?> key = cronRunnable.key;
+        if (dispatcher != null) {
+            dispatcher.add(key, pattern, cronRunnable::fire);
+            return key;
+        }
+        if (!deferUntilStarted(cronRunnable)) {
+            ZonedDateTime now = ZonedDateTime.now(clock);
+            submitFirst(cronRunnable, pattern.next(now, true).truncatedTo(ChronoUnit.MINUTES), now);
+        }
+        return key;
+    }
+
+    /**
+     * Submits a collection of cron patterns for execution with the same job
+     * options. Each entry pairs a pattern with its task. Returns the futures
+     * of the jobs in the iteration order of the collection. The next firing
+     * is computed once for each distinct pattern, so registering many jobs
+     * that share a few patterns is much cheaper than calling
+     * {@link #schedule(CronPattern, Runnable, JobOptions)} for each job.
+     * No job is scheduled if any pattern or task is null. The options
+     * must not have a name because a name identifies a single job.
+     */
+    public ImmutableList<CronFuture<?>> scheduleAll(
+            Collection<? extends Map.Entry<CronPattern, ? extends Runnable>> jobs, JobOptions options) {
+        Preconditions.checkNotNull(jobs, "jobs argument must be non-null");
+        Preconditions.checkNotNull(options, "options argument must be non-null");
+        Preconditions.checkArgument(options.getName() == null,
+                                    "options argument must not have a name, but name = %s", options.getName());
+        for (Map.Entry<CronPattern, ? extends Runnable> job : jobs) {
+            Preconditions.checkNotNull(job.getKey(), "pattern of each job must be non-null");
+            Preconditions.checkNotNull(job.getValue(), "runnable of each job must be non-null");
+        }
+        checkNotStopped();
+        List<CronRunnable> cronRunnables = new ArrayList<>(jobs.size());
+        ImmutableList.Builder<CronFuture<?>> result = ImmutableList.builder();
+        for (Map.Entry<CronPattern, ? extends Runnable> job : jobs) {
+            CronRunnable cronRunnable = newJob(job.getKey(), job.getValue(), options);
+            cronRunnables.add(cronRunnable);
+            result.add(cronRunnable.key);
+        }
+        if (dispatcher != null) {
+            List<Object> keys = new ArrayList<>(cronRunnables.size());
+            List<CronPattern> patterns = new ArrayList<>(cronRunnables.size());
+            List<MinuteTickDispatcher.Job> dispatched = new ArrayList<>(cronRunnables.size());
+            for (CronRunnable cronRunnable : cronRunnables) {
+                keys.add(cronRunnable.key);
+                patterns.add(cronRunnable.pattern);
+                dispatched.add(cronRunnable::fire);
+            }
+            dispatcher.addAll(keys, patterns, dispatched);
+            return result.build();
+        }
+        List<CronRunnable> submit = new ArrayList<>(cronRunnables.size());
+        for (CronRunnable cronRunnable : cronRunnables) {
+            if (!deferUntilStarted(cronRunnable)) {
+                submit.add(cronRunnable);
+            }
+        }
+        submitAll(submit);
+        return result.build();
+    }
+
+    /**
+     * Cancels each future of the collection. Returns the number
+     * of futures that were cancelled by this call.
+     * See {@link Future#cancel(boolean)}.
+     */
+    public int cancelAll(Collection<? extends Future<?>> futures, boolean mayInterruptIfRunning) {
+        Preconditions.checkNotNull(futures, "futures argument must be non-null");
+        int cancelled = 0;
+        for (Future<?> future : futures) {
+            // CompletableFuture#cancel also returns true if already cancelled
+            boolean done = future.isDone();
+            if (future.cancel(mayInterruptIfRunning) && !done) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    /**
+     * Rejects a job before its MBean is registered and its listener
+     * event is delivered if the scheduler is stopping or has stopped.
+     */
+    private void checkNotStopped() {
+        State state = state();
+        if ((state == State.STOPPING) || (state == State.TERMINATED) || (state == State.FAILED)) {
+            throw new RejectedExecutionException("Cron scheduler has been stopped");
+        }
+    }
+
+    private CronRunnable newJob(CronPattern pattern, Runnable runnable, JobOptions options) {
+        CronFutureExternal<?> key = new CronFutureExternal<>(pattern);
+        CronRunnable cronRunnable = new CronRunnable(pattern, runnable, key, options);
+        if (listener != null) {
+            notifyListener((listener) -> listener.onScheduled(key));
+        }
+        if (cronRunnable.jobStats != null) {
+            registerJob(key, options.getName(), cronRunnable.jobStats);
+        }
+        return cronRunnable;
+    }
+
+    private void registerJob(CronFutureExternal<?> key, String name, JobStats jobStats) {
         try {
-            if (preStartupFutures != null) {
-                preStartupFutures.put(key, cronRunnable);
-                return key;
+            ObjectName objectName = new ObjectName("com.addthis.cronus:type=CronJob,scheduler=" +
+                                                   ObjectName.quote(jmxName) + ",name=" + ObjectName.quote(name));
+            if (register(jobStats, objectName)) {
+                jobBeans.put(key, objectName);
             }
-        } finally {
-            preStartupFuturesLock.readLock().unlock();
+        } catch (JMException ex) {
+            log.warn("Unable to register MBean for job \"{}\": ", name, ex);
+        }
+    }
+
+    private static boolean register(Object bean, ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, objectName);
+            return true;
+        } catch (JMException ex) {
+            log.warn("Unable to register MBean {}: ", objectName, ex);
+            return false;
+        }
+    }
+
+    private static void unregister(@Nullable ObjectName objectName) {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (InstanceNotFoundException ignored) {
+        } catch (JMException ex) {
+            log.warn("Unable to unregister MBean {}: ", objectName, ex);
+        }
+    }
+
+    @Nullable
+    private ObjectName schedulerObjectName() {
+        try {
+            return new ObjectName("com.addthis.cronus:type=CronScheduler,name=" + ObjectName.quote(jmxName));
+        } catch (JMException ex) {
+            log.warn("Unable to create MBean name for scheduler \"{}\": ", jmxName, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Delivers an event to the listener. Callers test that the listener
+     * is non-null before building the event so that a scheduler without
+     * a listener does not allocate.
+     */
+    private void notifyListener(Consumer<CronSchedulerListener> event) {
+        try {
+            event.accept(listener);
+        } catch (RuntimeException ex) {
+            log.warn("Ignoring exception from cron scheduler listener: ", ex);
         }
-        futures.put(key, new CronFutureInternal(null, submitToExecutor(cronRunnable, true)));
-        return key;
     }
 
     @Override
     protected void doStart() {
-        ConcurrentHashMap<CronFutureExternal<?>, CronRunnable> map;
         log.info("Starting cron scheduler");
-        preStartupFuturesLock.writeLock().lock();
-        try {
-            map = preStartupFutures;
-            preStartupFutures = null;
-        } finally {
-            preStartupFuturesLock.writeLock().unlock();
-        }
-        if (map != null) {
-            for (Map.Entry<CronFutureExternal<?>, CronRunnable> entry : map.entrySet()) {
-                if (!entry.getKey().isCancelled()) {
-                    futures.put(entry.getKey(),
-                                new CronFutureInternal(null, submitToExecutor(entry.getValue(), true)));
-                }
+        if (asyncListener != null) {
+            asyncListener.start();
+        }
+        if (jfr != null) {
+            jfr.start();
+        }
+        if (stats != null) {
+            ObjectName objectName = schedulerObjectName();
+            if (objectName != null) {
+                register(stats, objectName);
+            }
+        }
+        if (dispatcher != null) {
+            dispatcher.start();
+        }
+        started = true;
+        List<CronRunnable> claimed = new ArrayList<>(preStartupFutures.size());
+        for (CronRunnable cronRunnable : preStartupFutures.values()) {
+            if (preStartupFutures.remove(cronRunnable.key, cronRunnable)) {
+                claimed.add(cronRunnable);
             }
         }
+        submitAll(claimed);
         notifyStarted();
     }
 
     @Override
     protected void doStop() {
         log.info("Stopping cron scheduler");
+        if (jfr != null) {
+            jfr.stop();
+        }
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
         executor.shutdown();
+        if (ownsExecutionExecutor) {
+            ((ExecutorService) executionExecutor).shutdown();
+        }
         try {
+            long deadline = System.nanoTime() + shutdownWait.toNanos();
             executor.awaitTermination(shutdownWait.toNanos(), TimeUnit.NANOSECONDS);
+            if (ownsExecutionExecutor) {
+                ((ExecutorService) executionExecutor).awaitTermination(deadline - System.nanoTime(),
+                                                                       TimeUnit.NANOSECONDS);
+            }
         } catch (InterruptedException ex) {
             log.info("cron scheduler interrupted while waiting for shutdown");
         }
         executor.shutdownNow();
+        if (ownsExecutionExecutor) {
+            ((ExecutorService) executionExecutor).shutdownNow();
+        }
+        if (asyncListener != null) {
+            asyncListener.stop();
+        }
+        if (stats != null) {
+            unregister(schedulerObjectName());
+            for (CronFutureExternal<?> key : jobBeans.keySet()) {
+                unregister(jobBeans.remove(key));
+            }
+        }
         notifyStopped();
     }
 
@@ -180,6 +532,164 @@ public class CronScheduler extends AbstractService implements Service {
         return executor;
     }
 
+    /**
+     * Returns the number of jobs that have been scheduled and not cancelled.
+     */
+    int getJobCount() {
+        return (dispatcher != null) ? dispatcher.size() : futures.size();
+    }
+
+    /**
+     * Returns zero unless flight recorder events or JMX statistics are enabled.
+     */
+    int getActiveRuns() {
+        return (activeRuns == null) ? 0 : (int) activeRuns.sum();
+    }
+
+    long currentTimeMillis() {
+        return clock.millis();
+    }
+
+    /**
+     * Returns the time of the next firing of any job or null if no job is scheduled.
+     * If the scheduler created its {@link ScheduledThreadPoolExecutor} then the
+     * result is read from the head of the queue in constant time. The head is
+     * ignored if it is cancelled or overdue, since it may then be a run that is
+     * waiting for a thread. Otherwise the result is found by visiting every job.
+     */
+    @Nullable
+    Instant getNextDueTime() {
+        if (dispatcher != null) {
+            return dispatcher.nextFireTime();
+        }
+        if (nextDueFromQueue) {
+            // the queue is ordered by delay
+            Runnable head = ((ScheduledThreadPoolExecutor) executor).getQueue().peek();
+            if ((head instanceof RunnableScheduledFuture) && !((RunnableScheduledFuture<?>) head).isCancelled()) {
+                long delay = ((RunnableScheduledFuture<?>) head).getDelay(TimeUnit.MILLISECONDS);
+                if (delay > 0) {
+                    return Instant.ofEpochMilli(clock.millis() + delay);
+                }
+            }
+        }
+        ZonedDateTime next = null;
+        for (CronFutureExternal<?> key : futures.keySet()) {
+            ZonedDateTime scheduled = key.scheduledTime;
+            if ((scheduled != null) && ((next == null) || scheduled.isBefore(next))) {
+                next = scheduled;
+            }
+        }
+        return (next == null) ? null : next.toInstant();
+    }
+
+    /**
+     * Returns the number of runs that are waiting for the execution executor,
+     * zero if the runs execute on the scheduling threads, or -1 if unknown.
+     */
+    int getExecutionQueueDepth() {
+        return (executionExecutor == executor) ? 0 : queueDepth(executionExecutor);
+    }
+
+    /**
+     * Returns the number of tasks waiting in the executor or -1 if unknown.
+     */
+    static int queueDepth(Executor executor) {
+        if (executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executor).getQueue().size();
+        } else if (executor instanceof ForkJoinPool) {
+            return ((ForkJoinPool) executor).getQueuedSubmissionCount();
+        } else {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the number of listener events that were dropped because
+     * the queue of the asynchronous listener was full or the scheduler
+     * had stopped. Always zero if the listener is invoked synchronously.
+     */
+    public long getDroppedListenerEvents() {
+        return (asyncListener != null) ? asyncListener.getDropped() : 0;
+    }
+
+    /**
+     * Returns the firing lag of all jobs. The snapshot is
+     * empty unless the scheduler records latency.
+     */
+    public LatencyHistogram.Snapshot getLagSnapshot() {
+        return (lagHistogram != null) ? lagHistogram.snapshot() : LatencyHistogram.EMPTY;
+    }
+
+    /**
+     * Returns the run durations of all jobs. The snapshot is
+     * empty unless the scheduler records latency.
+     */
+    public LatencyHistogram.Snapshot getDurationSnapshot() {
+        return (durationHistogram != null) ? durationHistogram.snapshot() : LatencyHistogram.EMPTY;
+    }
+
+    /**
+     * Returns the firing lag of the job that was submitted to this scheduler
+     * with the given future. See {@link CronFuture#getLagSnapshot()}.
+     */
+    public LatencyHistogram.Snapshot getLagSnapshot(Future<?> future) {
+        return checkFuture(future).getLagSnapshot();
+    }
+
+    /**
+     * Returns the run durations of the job that was submitted to this scheduler
+     * with the given future. See {@link CronFuture#getDurationSnapshot()}.
+     */
+    public LatencyHistogram.Snapshot getDurationSnapshot(Future<?> future) {
+        return checkFuture(future).getDurationSnapshot();
+    }
+
+    private CronFutureExternal<?> checkFuture(Future<?> future) {
+        Preconditions.checkNotNull(future, "future argument must be non-null");
+        Preconditions.checkArgument((future instanceof CronFutureExternal) &&
+                                    (((CronFutureExternal<?>) future).scheduler() == this),
+                                    "future argument must be returned by this scheduler");
+        return (CronFutureExternal<?>) future;
+    }
+
+    /**
+     * Implementations of the executor that holds the next firing of each pattern.
+     */
+    public enum Engine {
+        /**
+         * A {@link ScheduledThreadPoolExecutor}. Insertion and cancellation
+         * are O(log N) operations on a binary heap guarded by a single lock.
+         */
+        SCHEDULED_THREAD_POOL,
+        /**
+         * A {@link TimingWheelExecutor}. Insertion and cancellation are O(1)
+         * and are handed off to the timer thread without locking. Recommended
+         * for schedulers that hold a large number of patterns.
+         */
+        TIMING_WHEEL
+    }
+
+    /**
+     * Strategies for deciding when each pattern fires.
+     */
+    public enum Dispatch {
+        /**
+         * Each pattern holds its own delayed task in the executor. After
+         * each firing the next firing of the pattern is computed and
+         * submitted to the executor.
+         */
+        PER_JOB,
+        /**
+         * A single timer wakes at the local minute boundaries in which
+         * at least one pattern fires. The due patterns are found with a
+         * {@link CronPatternIndex} and submitted to the executor together.
+         * Each pattern fires once per matching local minute, including
+         * minutes skipped by a daylight savings gap. Cancelling a job
+         * does not interrupt a run that is already in progress.
+         */
+        MINUTE_TICK
+    }
+
     /**
      * Constructs a Cron scheduler. In this builder the default
      * behavior is to remove cancelled tasks from the scheduler queue
@@ -199,6 +709,32 @@ public class CronScheduler extends AbstractService implements Service {
 
         private boolean continueAfterShutdown = false;
 
+        private Engine engine = Engine.SCHEDULED_THREAD_POOL;
+
+        private Dispatch dispatch = Dispatch.PER_JOB;
+
+        private Executor executionExecutor = null;
+
+        private boolean virtualThreads = false;
+
+        private Duration misfireThreshold = Duration.ofMinutes(1);
+
+        private MisfireListener misfireListener = null;
+
+        private Clock clock = Clock.systemDefaultZone();
+
+        private VirtualTimeExecutor virtualTime = null;
+
+        private boolean recordLatency = false;
+
+        private CronSchedulerListener listener = null;
+
+        private int asyncListenerCapacity = 0;
+
+        private boolean flightRecorderEvents = false;
+
+        private String jmxName = null;
+
         public Builder(int corePoolSize) {
             this.corePoolSize = corePoolSize;
         }
@@ -229,7 +765,182 @@ public class CronScheduler extends AbstractService implements Service {
             return this;
         }
 
+        /**
+         * Selects the executor implementation. The default
+         * is {@link Engine#SCHEDULED_THREAD_POOL}. The remove on
+         * cancel policy does not apply to the timing wheel engine
+         * which always removes cancelled tasks.
+         */
+        public Builder setEngine(Engine engine) {
+            Preconditions.checkNotNull(engine, "engine argument must be non-null");
+            this.engine = engine;
+            return this;
+        }
+
+        /**
+         * Selects how the firings of patterns are computed.
+         * The default is {@link Dispatch#PER_JOB}.
+         */
+        public Builder setDispatch(Dispatch dispatch) {
+            Preconditions.checkNotNull(dispatch, "dispatch argument must be non-null");
+            this.dispatch = dispatch;
+            return this;
+        }
+
+        /**
+         * Runs the tasks of the patterns on the given executor instead of
+         * the scheduling threads. For example a {@code ForkJoinPool} or a
+         * bounded {@code ThreadPoolExecutor}. When a task is rejected the
+         * firing is skipped and a warning is logged. The executor is not
+         * shut down when the scheduler stops. If null then tasks run on
+         * the scheduling threads, which is the default.
+         */
+        public Builder setExecutionExecutor(Executor executionExecutor) {
+            this.executionExecutor = executionExecutor;
+            return this;
+        }
+
+        /**
+         * If true and no execution executor has been set then each firing
+         * runs on a new virtual thread. Virtual threads are used only if
+         * the runtime supports them. Otherwise a warning is logged and
+         * the tasks run on the scheduling threads. The default is false.
+         */
+        public Builder setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+            return this;
+        }
+
+        /**
+         * A firing that starts later than its scheduled time by more
+         * than the threshold is a misfire and is handled by the
+         * {@link MisfirePolicy} of the job. Firings that are late by
+         * less than the threshold run normally, including any firings
+         * that fell between the scheduled time and the actual start.
+         * The default is one minute.
+         */
+        public Builder setMisfireThreshold(Duration misfireThreshold) {
+            Preconditions.checkNotNull(misfireThreshold, "misfireThreshold argument must be non-null");
+            Preconditions.checkArgument(!misfireThreshold.isNegative(),
+                                        "Expected misfireThreshold >= 0, but %s < 0", misfireThreshold);
+            this.misfireThreshold = misfireThreshold;
+            return this;
+        }
+
+        /**
+         * Receives the misfires of all jobs. If null then misfires
+         * are only logged, which is the default.
+         */
+        public Builder setMisfireListener(MisfireListener misfireListener) {
+            this.misfireListener = misfireListener;
+            return this;
+        }
+
+        /**
+         * Receives the lifecycle events of all jobs. When no listener is
+         * registered the scheduler does no work for events. The default is null.
+         */
+        public Builder setListener(CronSchedulerListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * If positive then the events of the listener are placed in a queue
+         * of the given capacity and delivered on a dedicated thread. Events
+         * are dropped when the queue is full. If zero then the listener is
+         * invoked on the scheduling and execution threads, which is the default.
+         */
+        public Builder setAsyncListenerCapacity(int asyncListenerCapacity) {
+            Preconditions.checkArgument(asyncListenerCapacity >= 0,
+                                        "Expected asyncListenerCapacity >= 0, but %s < 0", asyncListenerCapacity);
+            this.asyncListenerCapacity = asyncListenerCapacity;
+            return this;
+        }
+
+        /**
+         * If true and the runtime supports Java Flight Recorder then the
+         * scheduler emits a {@code com.addthis.cronus.Firing} event for each
+         * run and each firing that does not run, and a periodic
+         * {@code com.addthis.cronus.Scheduler} event with the number of jobs,
+         * the runs in progress and the executor queue depths. While no
+         * recording is active the cost of the events is a flag check,
+         * but every run also updates the count of runs in progress.
+         * The default is false.
+         */
+        public Builder setFlightRecorderEvents(boolean flightRecorderEvents) {
+            this.flightRecorderEvents = flightRecorderEvents;
+            return this;
+        }
+
+        /**
+         * If non-null then the scheduler registers a {@link CronSchedulerMXBean}
+         * under this name in the platform MBean server while it is running, and
+         * a {@link CronJobMXBean} for each job that is scheduled with a name.
+         * Registering with JMX also records latency. The default is null.
+         */
+        public Builder setJmxName(String jmxName) {
+            this.jmxName = jmxName;
+            return this;
+        }
+
+        /**
+         * If true then the firing lag and the run duration of every job
+         * are recorded in a {@link LatencyHistogram}. The histograms of
+         * a job are read from its {@link CronFuture} or with
+         * {@link CronScheduler#getLagSnapshot(Future)} and the histograms
+         * of all jobs from the scheduler. The histograms of a job use the
+         * compact layout of {@link LatencyHistogram} and are allocated
+         * by the first firing of the job. The default is false.
+         */
+        public Builder setRecordLatency(boolean recordLatency) {
+            this.recordLatency = recordLatency;
+            return this;
+        }
+
+        /**
+         * Source of the current time and of the time zone in which patterns
+         * are evaluated. The clock is read on every firing and every
+         * reschedule, so a coarse clock that caches the current time
+         * may be supplied. The default is {@link Clock#systemDefaultZone()}.
+         */
+        public Builder setClock(Clock clock) {
+            Preconditions.checkNotNull(clock, "clock argument must be non-null");
+            this.clock = clock;
+            return this;
+        }
+
+        /**
+         * Runs the scheduler in virtual time. The executor holds the
+         * next firing of each pattern and its clock becomes the clock of
+         * the scheduler. Time moves forward only when the executor is
+         * advanced. Overrides the engine, the core pool size and the clock.
+         */
+        public Builder setVirtualTime(VirtualTimeExecutor virtualTime) {
+            Preconditions.checkNotNull(virtualTime, "virtualTime argument must be non-null");
+            this.virtualTime = virtualTime;
+            this.clock = virtualTime.getClock();
+            return this;
+        }
+
         public CronScheduler build() {
+            Executor executionExecutor = this.executionExecutor;
+            boolean ownsExecutionExecutor = false;
+            if (virtualThreads && (executionExecutor == null)) {
+                executionExecutor = VirtualThreads.newExecutor();
+                ownsExecutionExecutor = (executionExecutor != null);
+                if (executionExecutor == null) {
+                    log.warn("Virtual threads are not supported by this runtime. " +
+                             "Tasks will run on the scheduling threads.");
+                }
+            }
+            if (virtualTime != null) {
+                return new CronScheduler(virtualTime, executionExecutor, ownsExecutionExecutor, this);
+            } else if (engine == Engine.TIMING_WHEEL) {
+                return new CronScheduler(new TimingWheelExecutor(corePoolSize, threadFactory, handler,
+                                                                 continueAfterShutdown),
+                                         executionExecutor, ownsExecutionExecutor, this);
+            }
             ScheduledThreadPoolExecutor executor;
             if ((threadFactory == null) && (handler == null)) {
                 executor = new ScheduledThreadPoolExecutor(corePoolSize);
@@ -242,34 +953,95 @@ public class CronScheduler extends AbstractService implements Service {
             }
             executor.setRemoveOnCancelPolicy(removeOnCancel);
             executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(continueAfterShutdown);
-            return new CronScheduler(executor, shutdownWait);
+            return new CronScheduler(executor, executionExecutor, ownsExecutionExecutor, true, this);
         }
     }
 
-    private ScheduledFuture<?> submitToExecutor(CronRunnable cronRunnable, boolean inclusive) {
-        ZonedDateTime now = ZonedDateTime.now();
-        ZonedDateTime next = cronRunnable.pattern.next(now, inclusive);
-        long delta;
-        if (now.equals(next)) {
-            delta = 0;
-        } else {
-            Duration difference = Duration.between(now, next);
-            delta = difference.toNanos();
-        }
+    /**
+     * Schedules the next firing of the pattern after {@code from}. The
+     * firing is at the start of the matching minute. The delay is measured
+     * from the current time and is zero if the firing is in the past.
+     */
+    private ScheduledFuture<?> submitToExecutor(CronRunnable cronRunnable, ZonedDateTime from, boolean inclusive) {
+        ZonedDateTime next = cronRunnable.pattern.next(from, inclusive).truncatedTo(ChronoUnit.MINUTES);
+        return submitToExecutor(cronRunnable, next, ZonedDateTime.now(clock));
+    }
+
+    private ScheduledFuture<?> submitToExecutor(CronRunnable cronRunnable, ZonedDateTime next, ZonedDateTime now) {
+        cronRunnable.key.scheduledTime = next;
+        long delta = Math.max(0, Duration.between(now, next).toNanos());
         return executor.schedule(cronRunnable, delta, TimeUnit.NANOSECONDS);
     }
 
-    private void cancel(CronFutureExternal<?> future, boolean mayInterruptIfRunning) {
-        preStartupFuturesLock.readLock().lock();
+    /**
+     * Schedules the first firing of each job that has not been cancelled.
+     * The current time is read once and the next firing is computed
+     * once for each distinct pattern.
+     */
+    private void submitAll(Collection<CronRunnable> cronRunnables) {
+        if (cronRunnables.isEmpty()) {
+            return;
+        }
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        Map<CronPattern, ZonedDateTime> nextFirings = new HashMap<>();
+        for (CronRunnable cronRunnable : cronRunnables) {
+            if (!cronRunnable.key.isCancelled()) {
+                ZonedDateTime next = nextFirings.computeIfAbsent(
+                        cronRunnable.pattern, (pattern) -> pattern.next(now, true).truncatedTo(ChronoUnit.MINUTES));
+                submitFirst(cronRunnable, next, now);
+            }
+        }
+    }
+
+    /**
+     * Schedules the first firing of a job. A cancellation that runs
+     * while the job is handed off from {@code preStartupFutures} may
+     * find the job in neither map, so the job is cancelled again if
+     * its future was cancelled in the meantime. The MBean of the job
+     * is unregistered if the executor rejects the job because the
+     * scheduler stopped concurrently.
+     */
+    private void submitFirst(CronRunnable cronRunnable, ZonedDateTime next, ZonedDateTime now) {
+        ScheduledFuture<?> first;
         try {
-            if (preStartupFutures != null) {
-                CronRunnable cronRunnable = preStartupFutures.remove(future);
-                if (cronRunnable != null) {
-                    return;
-                }
+            first = submitToExecutor(cronRunnable, next, now);
+        } catch (RejectedExecutionException ex) {
+            if (stats != null) {
+                unregister(jobBeans.remove(cronRunnable.key));
             }
-        } finally {
-            preStartupFuturesLock.readLock().unlock();
+            throw ex;
+        }
+        futures.put(cronRunnable.key, new CronFutureInternal(null, first));
+        if (cronRunnable.key.isCancelled()) {
+            cancel(cronRunnable.key, false);
+        }
+    }
+
+    /**
+     * Registers the job to be scheduled by {@link #doStart()} if the
+     * scheduler has not started. Returns false if the caller must
+     * schedule the job: either the scheduler had already started or it
+     * started concurrently and the caller reclaimed the job before
+     * {@link #doStart()} could. Takes no lock.
+     */
+    private boolean deferUntilStarted(CronRunnable cronRunnable) {
+        if (started) {
+            return false;
+        }
+        preStartupFutures.put(cronRunnable.key, cronRunnable);
+        return !started || !preStartupFutures.remove(cronRunnable.key, cronRunnable);
+    }
+
+    private void cancel(CronFutureExternal<?> future, boolean mayInterruptIfRunning) {
+        if (stats != null) {
+            unregister(jobBeans.remove(future));
+        }
+        if (dispatcher != null) {
+            dispatcher.remove(future);
+            return;
+        }
+        if (!started && (preStartupFutures.remove(future) != null)) {
+            return;
         }
         CronFutureInternal pair = futures.remove(future);
         if (pair != null) {
@@ -282,12 +1054,54 @@ public class CronScheduler extends AbstractService implements Service {
         }
     }
 
-    private class CronFutureExternal<V> extends CompletableFuture<V> {
+    private class CronFutureExternal<V> extends CompletableFuture<V> implements CronFuture<V> {
+
+        private final CronPattern pattern;
+
+        @Nullable
+        private final LatencyHistogram lag;
+
+        @Nullable
+        private final LatencyHistogram duration;
+
+        /**
+         * Time of the firing that is held by the executor.
+         * Not used by the minute tick dispatcher.
+         */
+        private volatile ZonedDateTime scheduledTime;
+
+        CronFutureExternal(CronPattern pattern) {
+            this.pattern = pattern;
+            this.lag = (lagHistogram != null) ? LatencyHistogram.compact() : null;
+            this.duration = (durationHistogram != null) ? LatencyHistogram.compact() : null;
+        }
+
+        @Override
+        public CronPattern getPattern() {
+            return pattern;
+        }
+
+        CronScheduler scheduler() {
+            return CronScheduler.this;
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getLagSnapshot() {
+            return (lag != null) ? lag.snapshot() : LatencyHistogram.EMPTY;
+        }
+
+        @Override
+        public LatencyHistogram.Snapshot getDurationSnapshot() {
+            return (duration != null) ? duration.snapshot() : LatencyHistogram.EMPTY;
+        }
 
         @Override
         public boolean cancel(boolean mayInterruptIfRunning) {
             boolean result = super.cancel(mayInterruptIfRunning);
             CronScheduler.this.cancel(this, mayInterruptIfRunning);
+            if (result && (listener != null)) {
+                notifyListener((listener) -> listener.onCancelled(this));
+            }
             return result;
         }
 
@@ -295,35 +1109,304 @@ public class CronScheduler extends AbstractService implements Service {
 
     private class CronRunnable implements Runnable {
 
+        /**
+         * Bit of {@code state} that is set when a run has been
+         * deferred by the {@link OverlapPolicy#queueOne()} policy.
+         */
+        private static final int PENDING = 1 << 30;
+
         private final CronPattern pattern;
         private final Runnable runnable;
         private final CronFutureExternal<?> key;
         private final boolean stopOnFailure;
+        private final OverlapPolicy overlapPolicy;
+        private final MisfirePolicy misfirePolicy;
+
+        /**
+         * Non-null if the job is named and the scheduler is registered with JMX.
+         */
+        @Nullable
+        private final JobStats jobStats;
+
+        /**
+         * The low bits are the number of runs in progress
+         * and the {@link #PENDING} bit marks a deferred run.
+         */
+        private final AtomicInteger state;
 
-        CronRunnable(CronPattern pattern, Runnable runnable, CronFutureExternal<?> key, boolean stopOnFailure) {
+        CronRunnable(CronPattern pattern, Runnable runnable, CronFutureExternal<?> key, JobOptions options) {
             this.pattern = pattern;
             this.runnable = runnable;
             this.key = key;
-            this.stopOnFailure = stopOnFailure;
+            this.stopOnFailure = options.isStopOnFailure();
+            this.overlapPolicy = options.getOverlapPolicy();
+            this.misfirePolicy = options.getMisfirePolicy();
+            this.state = new AtomicInteger();
+            this.jobStats = ((stats != null) && (options.getName() != null)) ?
+                            new JobStats(options.getName(), key, this::activeRuns, this::nextFireTime) : null;
+        }
+
+        private int activeRuns() {
+            return state.get() & ~PENDING;
+        }
+
+        @Nullable
+        private Instant nextFireTime() {
+            if (dispatcher != null) {
+                ZonedDateTime next = pattern.next(ZonedDateTime.now(clock), false);
+                return (next == null) ? null : next.truncatedTo(ChronoUnit.MINUTES).toInstant();
+            }
+            ZonedDateTime scheduled = key.scheduledTime;
+            return (scheduled == null) ? null : scheduled.toInstant();
+        }
+
+        private void recordFired() {
+            if (stats != null) {
+                stats.recordFiring(clock.millis());
+                if (jobStats != null) {
+                    jobStats.recordFiring();
+                }
+            }
         }
 
         @Override public void run() {
+            ZonedDateTime now = ZonedDateTime.now(clock);
+            ZonedDateTime scheduled = key.scheduledTime;
+            if (now.isBefore(scheduled)) {
+                // the wall clock was moved backward. Wait for the scheduled time.
+                futures.computeIfPresent(key, (key, prev) -> new CronFutureInternal(
+                        prev.next, submitToExecutor(this, scheduled, true)));
+                return;
+            }
+            boolean late = isLate(scheduled.toInstant(), now.toInstant());
+            // firings that are not late are followed by any firings that
+            // have been missed. Late firings skip ahead to the current time.
+            ZonedDateTime from = late ? now : scheduled;
             CronFutureInternal reschedule = futures.compute(key, (key, prev) -> (
                     (prev != null) ?
                     new CronFutureInternal(
-                            prev.next, submitToExecutor(this, false)) : null));
+                            prev.next, submitToExecutor(this, from, false)) : null));
 
             if (reschedule != null) {
+                if (listener != null) {
+                    notifyListener((listener) -> listener.onFired(key, scheduled.toInstant()));
+                }
+                recordFired();
+                int runs = 1;
+                if (late) {
+                    long missed = pattern.countFirings(scheduled.toInstant().plusMillis(1),
+                                                       now.toInstant().plusMillis(1), now.getZone());
+                    runs = misfire(scheduled.toInstant(), now.toInstant(), missed);
+                }
+                fire((executionExecutor == executor) ? null : executionExecutor, runs,
+                     scheduled.toInstant().toEpochMilli());
+            }
+        }
+
+        /**
+         * Receives a batch of firings from the minute tick dispatcher.
+         */
+        void fire(long scheduledEpochMilli, int firings) {
+            if (key.isDone()) {
+                // cancelled after the batch was collected
+                return;
+            }
+            Instant scheduled = Instant.ofEpochMilli(scheduledEpochMilli);
+            Instant now = Instant.now(clock);
+            if (listener != null) {
+                notifyListener((listener) -> listener.onFired(key, scheduled));
+            }
+            recordFired();
+            if (isLate(scheduled, now)) {
+                fire(executionExecutor, misfire(scheduled, now, firings - 1), scheduledEpochMilli);
+            } else {
+                fire(executionExecutor, firings, scheduledEpochMilli);
+            }
+        }
+
+        private boolean isLate(Instant scheduled, Instant now) {
+            return Duration.between(scheduled, now).compareTo(misfireThreshold) > 0;
+        }
+
+        /**
+         * Reports a misfire and returns the number of runs
+         * according to the misfire policy.
+         */
+        private int misfire(Instant scheduled, Instant now, long missed) {
+            log.debug("Pattern \"{}\" misfired: scheduled at {}, started at {}, {} missed firings",
+                      pattern.source, scheduled, now, missed);
+            if (misfireListener != null) {
+                try {
+                    misfireListener.onMisfire(key, scheduled, now, missed, misfirePolicy);
+                } catch (RuntimeException ex) {
+                    log.warn("Ignoring exception from misfire listener: ", ex);
+                }
+            }
+            if (listener != null) {
+                notifyListener((listener) -> listener.onMisfire(key, scheduled, now, missed, misfirePolicy));
+            }
+            return misfirePolicy.runs(missed);
+        }
+
+        /**
+         * Applies the overlap policy to a firing of the job. If the firing
+         * is allowed to run then the job is run {@code runs} times in a row
+         * on the target executor, or on the current thread if the target
+         * is null. Does nothing if {@code runs} is zero.
+         */
+        void fire(@Nullable Executor target, int runs, long scheduledEpochMilli) {
+            if (runs == 0) {
+                recordFiring(scheduledEpochMilli, JfrEvents.SKIPPED);
+                return;
+            }
+            if (!tryAcquire()) {
+                log.debug("Skipping overlapping run of pattern \"{}\"", pattern.source);
+                recordFiring(scheduledEpochMilli, JfrEvents.SKIPPED);
+                return;
+            }
+            if (target == null) {
+                runAll(runs, scheduledEpochMilli);
+            } else {
                 try {
-                    runnable.run();
-                } catch (Exception ex) {
-                    if (stopOnFailure) {
-                        key.completeExceptionally(ex);
-                        CronScheduler.this.cancel(key, false);
-                    } else {
-                        log.warn("Ignoring exception for pattern \"{}\": ", pattern.source, ex);
+                    target.execute(() -> runAll(runs, scheduledEpochMilli));
+                } catch (RejectedExecutionException ex) {
+                    state.decrementAndGet();
+                    log.warn("Execution executor rejected pattern \"{}\": ", pattern.source, ex);
+                    if (listener != null) {
+                        notifyListener((listener) -> listener.onRejected(key, ex));
+                    }
+                    recordFiring(scheduledEpochMilli, JfrEvents.REJECTED);
+                    if (stats != null) {
+                        stats.recordRejected();
+                        if (jobStats != null) {
+                            jobStats.recordRejected();
+                        }
+                    }
+                }
+            }
+        }
+
+        /**
+         * Emits a flight recorder event for a firing that does not run.
+         */
+        private void recordFiring(long scheduledEpochMilli, String outcome) {
+            if ((jfr != null) && jfr.isFiringEnabled()) {
+                jfr.firing(pattern.source, scheduledEpochMilli, clock.millis(), 0, outcome);
+            }
+        }
+
+        /**
+         * Returns true if the caller may start a run. Otherwise the
+         * firing is either skipped or recorded as a deferred run.
+         */
+        private boolean tryAcquire() {
+            int limit = overlapPolicy.getMaxConcurrent();
+            while (true) {
+                int current = state.get();
+                int running = current & ~PENDING;
+                if (running < limit) {
+                    if (state.compareAndSet(current, current + 1)) {
+                        return true;
+                    }
+                } else if (overlapPolicy.isQueueOne() && ((current & PENDING) == 0)) {
+                    if (state.compareAndSet(current, current | PENDING)) {
+                        return false;
+                    }
+                } else {
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * Returns true if a deferred run should start now. Otherwise
+         * the current run is released.
+         */
+        private boolean releaseOrContinue() {
+            while (true) {
+                int current = state.get();
+                if ((current & PENDING) != 0) {
+                    if (state.compareAndSet(current, current & ~PENDING)) {
+                        return true;
                     }
+                } else if (state.compareAndSet(current, current - 1)) {
+                    return false;
+                }
+            }
+        }
+
+        private void runAll(int runs, long scheduledEpochMilli) {
+            if (key.lag != null) {
+                long lag = TimeUnit.MILLISECONDS.toNanos(clock.millis() - scheduledEpochMilli);
+                key.lag.record(lag);
+                lagHistogram.record(lag);
+            }
+            int remaining = runs;
+            while (true) {
+                execute(scheduledEpochMilli);
+                if ((--remaining > 0) && !key.isDone()) {
+                    continue;
+                }
+                if (!releaseOrContinue()) {
+                    return;
+                } else if (key.isDone()) {
+                    state.decrementAndGet();
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Runs the task without rescheduling it. The scheduled time
+         * is the time of the firing that started the runs.
+         */
+        void execute(long scheduledEpochMilli) {
+            boolean recorded = (jfr != null) && jfr.isFiringEnabled();
+            boolean timed = (key.duration != null) || (listener != null) || recorded;
+            long actualEpochMilli = recorded ? clock.millis() : 0;
+            if (listener != null) {
+                notifyListener((listener) -> listener.onStarted(key));
+            }
+            if (activeRuns != null) {
+                activeRuns.increment();
+            }
+            long start = timed ? System.nanoTime() : 0;
+            Exception failure = null;
+            try {
+                runnable.run();
+            } catch (Exception ex) {
+                failure = ex;
+            }
+            long duration = timed ? (System.nanoTime() - start) : 0;
+            if (activeRuns != null) {
+                activeRuns.decrement();
+            }
+            if (recorded) {
+                jfr.firing(pattern.source, scheduledEpochMilli, actualEpochMilli, duration,
+                           (failure == null) ? JfrEvents.COMPLETED : JfrEvents.FAILED);
+            }
+            if (key.duration != null) {
+                key.duration.record(duration);
+                durationHistogram.record(duration);
+            }
+            if (failure == null) {
+                if (listener != null) {
+                    notifyListener((listener) -> listener.onCompleted(key, duration));
                 }
+                return;
+            }
+            if (listener != null) {
+                Exception cause = failure;
+                notifyListener((listener) -> listener.onFailed(key, cause));
+            }
+            if (jobStats != null) {
+                jobStats.recordFailure();
+            }
+            if (stopOnFailure) {
+                key.completeExceptionally(failure);
+                CronScheduler.this.cancel(key, false);
+            } else {
+                log.warn("Ignoring exception for pattern \"{}\": ", pattern.source, failure);
             }
         }
     }
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import java.time.Instant;
+
+/**
+ * Receives the lifecycle events of the jobs of a {@link CronScheduler}.
+ * Register a listener with {@link CronScheduler.Builder#setListener(CronSchedulerListener)}.
+ * All methods have empty default implementations. Unless the listener is
+ * dispatched asynchronously the methods are invoked on the scheduling and
+ * execution threads and should return quickly. Exceptions thrown by the
+ * listener are logged and ignored.
+ */
+public interface CronSchedulerListener extends MisfireListener {
+
+    /**
+     * The job has been submitted to the scheduler.
+     */
+    default void onScheduled(CronFuture<?> future) {}
+
+    /**
+     * The job has reached a scheduled time. The firing is then
+     * subject to the misfire policy and the overlap policy of the job.
+     */
+    default void onFired(CronFuture<?> future, Instant scheduledTime) {}
+
+    /**
+     * A run of the job is starting.
+     */
+    default void onStarted(CronFuture<?> future) {}
+
+    /**
+     * A run of the job has returned normally.
+     */
+    default void onCompleted(CronFuture<?> future, long durationNanos) {}
+
+    /**
+     * A run of the job has thrown an exception.
+     */
+    default void onFailed(CronFuture<?> future, Throwable cause) {}
+
+    /**
+     * The job has been cancelled.
+     */
+    default void onCancelled(CronFuture<?> future) {}
+
+    @Override
+    default void onMisfire(CronFuture<?> future, Instant scheduledTime, Instant actualTime,
+                           long missedFirings, MisfirePolicy policy) {}
+
+    /**
+     * The execution executor rejected a firing of the job.
+     */
+    default void onRejected(CronFuture<?> future, RejectedExecutionException cause) {}
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.Date;
+
+/**
+ * Management interface of a {@link CronScheduler}. Registered in the
+ * platform MBean server as {@code com.addthis.cronus:type=CronScheduler,name=<name>}
+ * when the scheduler is built with {@link CronScheduler.Builder#setJmxName(String)}.
+ */
+public interface CronSchedulerMXBean {
+
+    /**
+     * Number of jobs that have been scheduled and not cancelled.
+     */
+    int getJobCount();
+
+    /**
+     * Number of runs of all jobs that are in progress.
+     */
+    int getActiveRuns();
+
+    /**
+     * Number of tasks held by the scheduled executor or -1 if unknown.
+     */
+    int getPendingTimers();
+
+    /**
+     * Number of runs waiting for the execution executor or -1 if unknown.
+     */
+    int getExecutionQueueDepth();
+
+    /**
+     * Total number of firings of all jobs.
+     */
+    long getFirings();
+
+    /**
+     * Approximate number of firings of all jobs in the previous minute.
+     */
+    long getFiringsPerMinute();
+
+    /**
+     * Total number of firings rejected by the execution executor.
+     */
+    long getRejectedExecutions();
+
+    double getLag50thPercentileMillis();
+
+    double getLag99thPercentileMillis();
+
+    double getLagMaxMillis();
+
+    /**
+     * Time of the next firing of any job, or null if no job is scheduled.
+     * With a {@link java.util.concurrent.ScheduledThreadPoolExecutor} this is
+     * the time of the first task in its queue.
+     */
+    Date getNextDueTime();
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+import com.addthis.cronus.internal.EpochCalendar;
+
+/**
+ * Enumerates the firings of a pattern in the range [start, end).
+ * The spliterator carries a cursor from one firing to the next.
+ * While the cursor stays within one zone offset period the next
+ * firing is computed with local epoch minute arithmetic. The zone
+ * rules are only consulted again when a daylight savings transition
+ * is reached. Splitting divides the remaining range at the start of
+ * a local day so that each half can be enumerated independently.
+ */
+class FireTimeSpliterator implements Spliterator<ZonedDateTime> {
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private final CronPattern pattern;
+
+    private final ZoneId zone;
+
+    private final ZoneRules rules;
+
+    /**
+     * Lower bound (inclusive) of the next firing in epoch milliseconds.
+     */
+    private long cursor;
+
+    /**
+     * Upper bound (exclusive) of the range in epoch milliseconds.
+     */
+    private final long end;
+
+    /**
+     * Offset of the zone in milliseconds for the instants before {@code segmentEnd}.
+     */
+    private long offsetMillis;
+
+    /**
+     * Instant of the next zone transition after the cursor. Set
+     * to {@code Long.MIN_VALUE} when the offset has not been computed.
+     */
+    private long segmentEnd;
+
+    FireTimeSpliterator(CronPattern pattern, ZoneId zone, long start, long end) {
+        this.pattern = pattern;
+        this.zone = zone;
+        this.rules = zone.getRules();
+        this.cursor = start;
+        this.end = end;
+        this.segmentEnd = Long.MIN_VALUE;
+    }
+
+    /**
+     * Returns the next firing greater than or equal to the cursor.
+     */
+    private long nextFiring() {
+        if (cursor < segmentEnd) {
+            long local = EpochCalendar.ceilDiv(cursor + offsetMillis, MILLIS_PER_MINUTE);
+            long result = pattern.nextEpochMinute(local, true) * MILLIS_PER_MINUTE - offsetMillis;
+            if (result < segmentEnd) {
+                return result;
+            }
+        }
+        long result = pattern.nextEpochMilli(cursor, zone, true);
+        if (rules.isFixedOffset()) {
+            offsetMillis = rules.getOffset(Instant.EPOCH).getTotalSeconds() * 1000L;
+            segmentEnd = Long.MAX_VALUE;
+        } else {
+            Instant instant = Instant.ofEpochMilli(result);
+            ZoneOffsetTransition transition = rules.nextTransition(instant);
+            offsetMillis = rules.getOffset(instant).getTotalSeconds() * 1000L;
+            segmentEnd = (transition == null) ? Long.MAX_VALUE : transition.toEpochSecond() * 1000L;
+        }
+        return result;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ZonedDateTime> action) {
+        if (cursor >= end || pattern.isEmpty()) {
+            return false;
+        }
+        long next = nextFiring();
+        if (next >= end) {
+            cursor = end;
+            return false;
+        }
+        cursor = next + 1;
+        action.accept(ZonedDateTime.ofInstant(Instant.ofEpochMilli(next), zone));
+        return true;
+    }
+
+    @Override
+    public Spliterator<ZonedDateTime> trySplit() {
+        if (end - cursor < 2 * MILLIS_PER_DAY) {
+            return null;
+        }
+        long midpoint = cursor + (end - cursor) / 2;
+        long boundary = ZonedDateTime.ofInstant(Instant.ofEpochMilli(midpoint), zone)
+                                     .toLocalDate().atStartOfDay(zone).toInstant().toEpochMilli();
+        if (boundary <= cursor) {
+            return null;
+        }
+        FireTimeSpliterator prefix = new FireTimeSpliterator(pattern, zone, cursor, boundary);
+        cursor = boundary;
+        segmentEnd = Long.MIN_VALUE;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return (cursor >= end) ? 0 : ((end - cursor) / MILLIS_PER_MINUTE + 1);
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SORTED | DISTINCT | NONNULL | IMMUTABLE;
+    }
+
+    @Override
+    public Comparator<? super ZonedDateTime> getComparator() {
+        return null;
+    }
+}
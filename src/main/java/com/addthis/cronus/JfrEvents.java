@@ -0,0 +1,46 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+/**
+ * Java Flight Recorder events of a scheduler. A firing event is committed
+ * for each run of a job and for each firing that does not run. A scheduler
+ * event with the number of jobs, the runs in progress and the queue depths
+ * of the executors is emitted periodically while the scheduler is running.
+ * The implementation is compiled from {@code src/main/jfr} and is obtained
+ * with {@link JfrSupport#create(CronScheduler)}.
+ */
+abstract class JfrEvents {
+
+    static final String COMPLETED = "completed";
+
+    static final String FAILED = "failed";
+
+    static final String SKIPPED = "skipped";
+
+    static final String REJECTED = "rejected";
+
+    abstract void start();
+
+    abstract void stop();
+
+    /**
+     * Returns true if firing events are recorded. Callers test this
+     * before measuring the values of an event.
+     */
+    abstract boolean isFiringEnabled();
+
+    abstract void firing(String pattern, long scheduledEpochMilli, long actualEpochMilli,
+                         long durationNanos, String outcome);
+}
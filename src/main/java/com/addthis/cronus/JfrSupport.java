@@ -0,0 +1,73 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Guards access to Java Flight Recorder. The JFR event classes are only
+ * loaded if the runtime provides the {@code jdk.jfr} API and the library
+ * was built with the {@code src/main/jfr} sources, so the library continues
+ * to work on Java 8 runtimes without flight recorder. This class must not
+ * refer to the {@code jdk.jfr} package or to the implementation class.
+ */
+final class JfrSupport {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrSupport.class);
+
+    private static final String IMPLEMENTATION = "com.addthis.cronus.JdkJfrEvents";
+
+    private static final boolean SUPPORTED = lookup();
+
+    private JfrSupport() {}
+
+    private static boolean lookup() {
+        try {
+            ClassLoader loader = JfrSupport.class.getClassLoader();
+            Class.forName("jdk.jfr.Event", false, loader);
+            Class.forName(IMPLEMENTATION, false, loader);
+            return true;
+        } catch (ClassNotFoundException | LinkageError | SecurityException ex) {
+            return false;
+        }
+    }
+
+    static boolean isSupported() {
+        return SUPPORTED;
+    }
+
+    /**
+     * Returns the flight recorder events of the scheduler,
+     * or null if flight recorder is not supported by the runtime
+     * or the library was built without the flight recorder events.
+     */
+    @Nullable
+    static JfrEvents create(CronScheduler scheduler) {
+        if (!SUPPORTED) {
+            return null;
+        }
+        try {
+            return Class.forName(IMPLEMENTATION)
+                        .asSubclass(JfrEvents.class)
+                        .getDeclaredConstructor(CronScheduler.class)
+                        .newInstance(scheduler);
+        } catch (ReflectiveOperationException | LinkageError | RuntimeException ex) {
+            log.warn("Unable to register flight recorder events: ", ex);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Options that control how a single job is run by the
+ * {@link CronScheduler}. Use the builder class to construct
+ * instances. The default options match the behavior of
+ * {@code CronScheduler#schedule(CronPattern, Runnable, boolean)}
+ * with {@code stopOnFailure} set to false.
+ */
+public final class JobOptions {
+
+    public static final JobOptions DEFAULT = new Builder().build();
+
+    private final boolean stopOnFailure;
+
+    @Nonnull
+    private final OverlapPolicy overlapPolicy;
+
+    @Nonnull
+    private final MisfirePolicy misfirePolicy;
+
+    @Nullable
+    private final String name;
+
+    private JobOptions(Builder builder) {
+        this.stopOnFailure = builder.stopOnFailure;
+        this.overlapPolicy = builder.overlapPolicy;
+        this.misfirePolicy = builder.misfirePolicy;
+        this.name = builder.name;
+    }
+
+    public boolean isStopOnFailure() {
+        return stopOnFailure;
+    }
+
+    @Nonnull
+    public OverlapPolicy getOverlapPolicy() {
+        return overlapPolicy;
+    }
+
+    @Nonnull
+    public MisfirePolicy getMisfirePolicy() {
+        return misfirePolicy;
+    }
+
+    @Nullable
+    public String getName() {
+        return name;
+    }
+
+    public static class Builder {
+
+        private boolean stopOnFailure = false;
+
+        private OverlapPolicy overlapPolicy = OverlapPolicy.unlimited();
+
+        private MisfirePolicy misfirePolicy = MisfirePolicy.fireOnce();
+
+        private String name = null;
+
+        /**
+         * If true then the job is cancelled when it throws an exception
+         * and the exception completes the future of the job.
+         */
+        public Builder setStopOnFailure(boolean stopOnFailure) {
+            this.stopOnFailure = stopOnFailure;
+            return this;
+        }
+
+        public Builder setOverlapPolicy(OverlapPolicy overlapPolicy) {
+            Preconditions.checkNotNull(overlapPolicy, "overlapPolicy argument must be non-null");
+            this.overlapPolicy = overlapPolicy;
+            return this;
+        }
+
+        public Builder setMisfirePolicy(MisfirePolicy misfirePolicy) {
+            Preconditions.checkNotNull(misfirePolicy, "misfirePolicy argument must be non-null");
+            this.misfirePolicy = misfirePolicy;
+            return this;
+        }
+
+        /**
+         * Name of the job. If the scheduler is registered with JMX then
+         * the statistics of a named job are registered as a {@link CronJobMXBean}.
+         */
+        public Builder setName(String name) {
+            this.name = name;
+            return this;
+        }
+
+        public JobOptions build() {
+            return new JobOptions(this);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+
+import java.util.Date;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+import java.time.Instant;
+
+import static com.addthis.cronus.SchedulerStats.millis;
+
+/**
+ * Statistics of a named job that are exposed through JMX.
+ */
+final class JobStats implements CronJobMXBean {
+
+    @Nonnull
+    private final String name;
+
+    @Nonnull
+    private final CronFuture<?> future;
+
+    @Nonnull
+    private final IntSupplier activeRuns;
+
+    @Nonnull
+    private final Supplier<Instant> nextFireTime;
+
+    private final LongAdder firings = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder rejected = new LongAdder();
+
+    JobStats(@Nonnull String name, @Nonnull CronFuture<?> future,
+             @Nonnull IntSupplier activeRuns, @Nonnull Supplier<Instant> nextFireTime) {
+        this.name = name;
+        this.future = future;
+        this.activeRuns = activeRuns;
+        this.nextFireTime = nextFireTime;
+    }
+
+    void recordFiring() {
+        firings.increment();
+    }
+
+    void recordFailure() {
+        failures.increment();
+    }
+
+    void recordRejected() {
+        rejected.increment();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getPattern() {
+        return future.getPattern().source;
+    }
+
+    @Override
+    public int getActiveRuns() {
+        return activeRuns.getAsInt();
+    }
+
+    @Override
+    public long getFirings() {
+        return firings.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public long getRejectedExecutions() {
+        return rejected.sum();
+    }
+
+    @Override
+    public double getLag50thPercentileMillis() {
+        return millis(future.getLagSnapshot().getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getLag99thPercentileMillis() {
+        return millis(future.getLagSnapshot().getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getLagMaxMillis() {
+        return millis(future.getLagSnapshot().getMax());
+    }
+
+    @Override
+    public double getDuration50thPercentileMillis() {
+        return millis(future.getDurationSnapshot().getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getDuration99thPercentileMillis() {
+        return millis(future.getDurationSnapshot().getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getDurationMaxMillis() {
+        return millis(future.getDurationSnapshot().getMax());
+    }
+
+    @Override
+    public Date getNextFireTime() {
+        Instant next = nextFireTime.get();
+        return (next == null) ? null : Date.from(next);
+    }
+}
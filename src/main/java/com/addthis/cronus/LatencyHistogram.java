@@ -0,0 +1,224 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. Values are counted
+ * in log-linear buckets: each power of two is divided into eight
+ * buckets of equal width, so a reported percentile is within 12.5%
+ * of the recorded value. The buckets are allocated by the first
+ * recorded value. Recording any later value does not allocate and
+ * may be called concurrently from any number of threads. Use
+ * {@link #snapshot()} to read the histogram.
+ */
+public final class LatencyHistogram {
+
+    /**
+     * Log base two of the number of buckets per power of two.
+     */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int BUCKETS = bucketCount(SUB_BUCKET_BITS, Long.SIZE - 2);
+
+    /**
+     * Values of the compact layout are counted in units of 1024 nanoseconds.
+     */
+    private static final int COMPACT_UNIT_BITS = 10;
+
+    private static final int COMPACT_SUB_BUCKET_BITS = 2;
+
+    /**
+     * The last bucket of the compact layout counts every value
+     * from 2^36 units (about 19.5 hours) upwards.
+     */
+    private static final int COMPACT_BUCKETS = bucketCount(COMPACT_SUB_BUCKET_BITS, 35) + 1;
+
+    private static final AtomicReferenceFieldUpdater<LatencyHistogram, AtomicLongArray> COUNTS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(LatencyHistogram.class, AtomicLongArray.class, "counts");
+
+    static final Snapshot EMPTY = new LatencyHistogram().snapshot();
+
+    private final int unitBits;
+
+    private final int subBucketBits;
+
+    private final int buckets;
+
+    private volatile AtomicLongArray counts;
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyHistogram() {
+        this(0, SUB_BUCKET_BITS, BUCKETS);
+    }
+
+    private LatencyHistogram(int unitBits, int subBucketBits, int buckets) {
+        this.unitBits = unitBits;
+        this.subBucketBits = subBucketBits;
+        this.buckets = buckets;
+    }
+
+    /**
+     * Returns a histogram that uses about a quarter of the memory of the
+     * default layout. Percentiles are within 25% of the recorded value plus
+     * one microsecond. Values of 19.5 hours or more share the last bucket.
+     * Used for the per-job histograms of {@link CronScheduler}.
+     */
+    static LatencyHistogram compact() {
+        return new LatencyHistogram(COMPACT_UNIT_BITS, COMPACT_SUB_BUCKET_BITS, COMPACT_BUCKETS);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        AtomicLongArray current = counts;
+        if (current == null) {
+            COUNTS_UPDATER.compareAndSet(this, null, new AtomicLongArray(buckets));
+            current = counts;
+        }
+        current.incrementAndGet(Math.min(bucket(value >>> unitBits, subBucketBits), buckets - 1));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[buckets];
+        long count = 0;
+        AtomicLongArray current = counts;
+        if (current != null) {
+            for (int i = 0; i < buckets; i++) {
+                copy[i] = current.get(i);
+                count += copy[i];
+            }
+        }
+        return new Snapshot(copy, count, sum.sum(), max.get(), unitBits, subBucketBits);
+    }
+
+    /**
+     * Returns the number of buckets that count every
+     * value less than 2^(maxMagnitude + 1).
+     */
+    private static int bucketCount(int subBucketBits, int maxMagnitude) {
+        return (maxMagnitude - subBucketBits + 2) << subBucketBits;
+    }
+
+    static int bucket(long value, int subBucketBits) {
+        int subBuckets = 1 << subBucketBits;
+        if (value < subBuckets) {
+            return (int) value;
+        }
+        int magnitude = (Long.SIZE - 1) - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (magnitude - subBucketBits)) & (subBuckets - 1);
+        return ((magnitude - subBucketBits + 1) << subBucketBits) + sub;
+    }
+
+    /**
+     * Returns the largest value that is counted in the bucket.
+     */
+    static long upperBound(int bucket, int subBucketBits) {
+        int subBuckets = 1 << subBucketBits;
+        if (bucket < subBuckets) {
+            return bucket;
+        }
+        int shift = (bucket >>> subBucketBits) - 1;
+        long lower = ((long) (subBuckets + (bucket & (subBuckets - 1)))) << shift;
+        return lower + ((1L << shift) - 1);
+    }
+
+    /**
+     * Immutable copy of a histogram. The count, mean and maximum
+     * are exact. Percentiles are rounded up to the end of a bucket
+     * but never exceed the maximum.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long max;
+
+        private final int unitBits;
+
+        private final int subBucketBits;
+
+        private Snapshot(long[] counts, long count, long sum, long max, int unitBits, int subBucketBits) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.unitBits = unitBits;
+            this.subBucketBits = subBucketBits;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * Returns the mean in nanoseconds or zero if the snapshot is empty.
+         */
+        public double getMean() {
+            return (count == 0) ? 0.0 : ((double) sum / count);
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the value in nanoseconds at the given percentile
+         * or zero if the snapshot is empty.
+         *
+         * @param percentile   a value from 0 to 100 inclusive
+         */
+        public long getValueAtPercentile(double percentile) {
+            Preconditions.checkArgument((percentile >= 0.0) && (percentile <= 100.0),
+                                        "Expected 0 <= percentile <= 100, but percentile = %s", percentile);
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+            long seen = 0;
+            // the last bucket has no upper bound
+            for (int i = 0; i < (counts.length - 1); i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    long upper = ((upperBound(i, subBucketBits) + 1) << unitBits) - 1;
+                    return Math.min(upper, max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + (long) getMean() + ", p50=" + getValueAtPercentile(50) +
+                   ", p99=" + getValueAtPercentile(99) + ", max=" + max;
+        }
+    }
+}
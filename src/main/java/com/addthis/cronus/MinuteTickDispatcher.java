@@ -0,0 +1,368 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import com.addthis.cronus.internal.EpochCalendar;
+
+import com.google.common.base.Preconditions;
+import com.google.common.primitives.Ints;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Dispatches every job of a scheduler from a single timer. Jobs are
+ * registered in a {@link CronPatternIndex}. The timer wakes at a local
+ * minute boundary, asks the index for the jobs that match each local
+ * minute since the previous wakeup, and invokes the due jobs as one
+ * batch. A job is dispatched at most once per batch together with the
+ * number of minutes of the batch that it matched. The timer is then set
+ * for the next local minute that is matched by any job, so minutes in
+ * which nothing fires cause no wakeups.
+ *
+ * Local minutes are visited in increasing order. When the clock moves
+ * forward across a daylight savings gap the skipped minutes are visited
+ * on the first wakeup after the gap. When the clock moves backward the
+ * repeated minutes are not visited again. Every pattern therefore follows
+ * wall clock semantics: it fires once per matching local minute.
+ */
+class MinuteTickDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(MinuteTickDispatcher.class);
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    /**
+     * Largest number of local minutes visited in a single batch.
+     * Bounds the work after a long pause. Larger than any daylight
+     * savings gap. Earlier minutes of the batch are counted for each
+     * job with {@link CronPattern} instead of being visited.
+     */
+    private static final int MAX_CATCH_UP_MINUTES = 2 * EpochCalendar.MINUTES_PER_HOUR;
+
+    /**
+     * Number of local minutes searched for the next firing. If no
+     * job fires within the horizon the timer wakes at the horizon.
+     */
+    private static final long SEARCH_HORIZON_MINUTES = 366L * EpochCalendar.MINUTES_PER_DAY;
+
+    @Nonnull
+    private final ScheduledExecutorService executor;
+
+    @Nonnull
+    private final Clock clock;
+
+    @Nonnull
+    private final ZoneId zone;
+
+    @Nonnull
+    private final CronPatternIndex index = new CronPatternIndex();
+
+    @GuardedBy("this")
+    private final Map<Object, Integer> ids = new HashMap<>();
+
+    @GuardedBy("this")
+    private final Map<Integer, Job> jobs = new HashMap<>();
+
+    /**
+     * The last local epoch minute that has been dispatched.
+     */
+    @GuardedBy("this")
+    private long lastMinute;
+
+    @GuardedBy("this")
+    private boolean running;
+
+    @Nullable
+    @GuardedBy("this")
+    private ScheduledFuture<?> timer;
+
+    /**
+     * The local epoch minute at which the timer fires.
+     */
+    @GuardedBy("this")
+    private long timerMinute;
+
+    /**
+     * Local minutes are computed in the time zone of the clock.
+     */
+    MinuteTickDispatcher(@Nonnull ScheduledExecutorService executor, @Nonnull Clock clock) {
+        this.executor = executor;
+        this.clock = clock;
+        this.zone = clock.getZone();
+    }
+
+    /**
+     * Receives the firings of a pattern.
+     */
+    interface Job {
+
+        /**
+         * Invoked on the timer thread and is expected to hand off its
+         * work to another executor. The dispatcher lock is not held, so
+         * a job that is removed concurrently may be invoked once more.
+         *
+         * @param scheduledEpochMilli   time of the first firing in the batch
+         * @param firings               number of firings in the batch
+         */
+        void fire(long scheduledEpochMilli, int firings);
+    }
+
+    /**
+     * Registers a job under the key. The job is invoked
+     * at each batch that contains firings of the pattern.
+     */
+    synchronized void add(Object key, CronPattern pattern, Job job) {
+        int id = index.add(pattern);
+        ids.put(key, id);
+        jobs.put(id, job);
+        if (running) {
+            long next = pattern.nextEpochMinute(lastMinute + 1, true);
+            if ((next != CronPattern.NO_MATCH) && ((timer == null) || (next < timerMinute))) {
+                setTimer(next);
+            }
+        }
+    }
+
+    /**
+     * Registers each job under its key. The three lists are parallel.
+     * The first firing is computed once for each distinct pattern and
+     * the timer is set at most once.
+     */
+    synchronized void addAll(List<Object> keys, List<CronPattern> patterns, List<Job> jobs) {
+        Preconditions.checkArgument((keys.size() == patterns.size()) && (keys.size() == jobs.size()),
+                                    "Expected lists of equal size, but %s, %s, %s",
+                                    keys.size(), patterns.size(), jobs.size());
+        Map<CronPattern, Long> nextMinutes = new HashMap<>();
+        long earliest = CronPattern.NO_MATCH;
+        for (int i = 0; i < keys.size(); i++) {
+            CronPattern pattern = patterns.get(i);
+            int id = index.add(pattern);
+            ids.put(keys.get(i), id);
+            this.jobs.put(id, jobs.get(i));
+            if (running) {
+                long next = nextMinutes.computeIfAbsent(pattern, (p) -> p.nextEpochMinute(lastMinute + 1, true));
+                if ((next != CronPattern.NO_MATCH) && ((earliest == CronPattern.NO_MATCH) || (next < earliest))) {
+                    earliest = next;
+                }
+            }
+        }
+        if ((earliest != CronPattern.NO_MATCH) && ((timer == null) || (earliest < timerMinute))) {
+            setTimer(earliest);
+        }
+    }
+
+    /**
+     * Unregisters the job under the key. Returns false if no job is registered.
+     */
+    synchronized boolean remove(Object key) {
+        Integer id = ids.remove(key);
+        if (id == null) {
+            return false;
+        }
+        jobs.remove(id);
+        index.remove(id);
+        return true;
+    }
+
+    synchronized int size() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the time at which the timer fires or null if the timer is not set.
+     */
+    @Nullable
+    synchronized Instant nextFireTime() {
+        return (timer == null) ? null : Instant.ofEpochMilli(epochMilli(timerMinute));
+    }
+
+    /**
+     * Starts the timer. A job does not fire in the minute that
+     * contains the current time unless the current time is
+     * exactly on the minute boundary.
+     */
+    synchronized void start() {
+        running = true;
+        lastMinute = localMinute(clock.millis() - 1);
+        scheduleNext();
+    }
+
+    synchronized void stop() {
+        running = false;
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    private long localMinute(long epochMilli) {
+        long offset = zone.getRules().getOffset(Instant.ofEpochMilli(epochMilli)).getTotalSeconds() * 1000L;
+        return Math.floorDiv(epochMilli + offset, MILLIS_PER_MINUTE);
+    }
+
+    /**
+     * Returns the instant of a local epoch minute. A minute inside a
+     * daylight savings gap is moved forward by the length of the gap.
+     */
+    private long epochMilli(long localMinute) {
+        return LocalDateTime.ofEpochSecond(localMinute * 60, 0, ZoneOffset.UTC)
+                            .atZone(zone).toInstant().toEpochMilli();
+    }
+
+    private void tick() {
+        List<Firing> batch = new ArrayList<>();
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            timer = null;
+            try {
+                collect(batch);
+            } catch (RuntimeException ex) {
+                log.error("Error while dispatching cron jobs: ", ex);
+            } finally {
+                scheduleNext();
+            }
+        }
+        // jobs are invoked without holding the lock so that
+        // adding and removing jobs does not wait for the batch
+        for (Firing firing : batch) {
+            dispatch(firing.job, firing.scheduledEpochMilli, firing.firings);
+        }
+    }
+
+    /**
+     * Appends the due jobs of the local minutes since the previous batch.
+     */
+    @GuardedBy("this")
+    private void collect(List<Firing> batch) {
+        long current = localMinute(clock.millis());
+        long first = Math.max(lastMinute + 1, current - MAX_CATCH_UP_MINUTES + 1);
+        if (current == first) {
+            BitSet due = new BitSet();
+            index.forEachMatch(current, due::set);
+            lastMinute = current;
+            long scheduled = epochMilli(current);
+            for (int id = due.nextSetBit(0); id >= 0; id = due.nextSetBit(id + 1)) {
+                batch.add(new Firing(jobs.get(id), scheduled, 1));
+            }
+        } else if (current > first) {
+            // catching up: record the first matching minute and the number of matches
+            Map<Integer, long[]> due = new TreeMap<>();
+            if (first > (lastMinute + 1)) {
+                countSkipped(lastMinute + 1, first, due);
+            }
+            for (long minute = first; minute <= current; minute++) {
+                long matched = minute;
+                index.forEachMatch(minute, (id) -> due.computeIfAbsent(id, (k) -> new long[] {matched, 0})[1]++);
+            }
+            lastMinute = current;
+            for (Map.Entry<Integer, long[]> entry : due.entrySet()) {
+                long[] value = entry.getValue();
+                batch.add(new Firing(jobs.get(entry.getKey()), epochMilli(value[0]),
+                                     Ints.saturatedCast(value[1])));
+            }
+        }
+    }
+
+    /**
+     * Records the first matching minute and the number of matches of
+     * each job in the local minutes [from, to) without visiting them.
+     * The cost is proportional to the number of jobs.
+     */
+    @GuardedBy("this")
+    private void countSkipped(long from, long to, Map<Integer, long[]> due) {
+        for (Integer id : jobs.keySet()) {
+            CronPattern pattern = index.get(id);
+            long count = (pattern == null) ? 0 : pattern.countLocalMinutes(from, to);
+            if (count > 0) {
+                due.put(id, new long[] {pattern.nextEpochMinute(from, true), count});
+            }
+        }
+    }
+
+    private void dispatch(@Nullable Job job, long scheduledEpochMilli, int firings) {
+        if (job == null) {
+            return;
+        }
+        try {
+            job.fire(scheduledEpochMilli, firings);
+        } catch (RuntimeException ex) {
+            log.error("Error while dispatching cron job: ", ex);
+        }
+    }
+
+    @GuardedBy("this")
+    private void scheduleNext() {
+        if (!running || (index.size() == 0)) {
+            return;
+        }
+        long from = lastMinute + 1;
+        long next = index.nextMatch(from, from + SEARCH_HORIZON_MINUTES);
+        setTimer((next == CronPattern.NO_MATCH) ? (from + SEARCH_HORIZON_MINUTES) : next);
+    }
+
+    @GuardedBy("this")
+    private void setTimer(long minute) {
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        long delay = Math.max(0, epochMilli(minute) - clock.millis());
+        try {
+            timer = executor.schedule(this::tick, delay, TimeUnit.MILLISECONDS);
+            timerMinute = minute;
+        } catch (RejectedExecutionException ex) {
+            timer = null;
+            log.debug("Cron timer rejected by executor: ", ex);
+        }
+    }
+
+    private static final class Firing {
+
+        @Nullable
+        final Job job;
+
+        final long scheduledEpochMilli;
+
+        final int firings;
+
+        Firing(@Nullable Job job, long scheduledEpochMilli, int firings) {
+            this.job = job;
+            this.scheduledEpochMilli = scheduledEpochMilli;
+            this.firings = firings;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.time.Instant;
+
+/**
+ * Receives the misfires of a {@link CronScheduler}. See {@link MisfirePolicy}.
+ * The listener is invoked on the scheduling thread before the
+ * misfire policy is applied and should return quickly.
+ */
+public interface MisfireListener {
+
+    /**
+     * @param future          the job that misfired
+     * @param scheduledTime   time at which the job should have fired
+     * @param actualTime      time at which the misfire was detected
+     * @param missedFirings   number of firings of the pattern after the
+     *                        scheduled time and up to the actual time
+     * @param policy          misfire policy of the job
+     */
+    void onMisfire(CronFuture<?> future, Instant scheduledTime, Instant actualTime,
+                   long missedFirings, MisfirePolicy policy);
+}
@@ -0,0 +1,98 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Determines what happens when a job misfires. A misfire occurs when
+ * a firing starts later than its scheduled time by more than the misfire
+ * threshold of the scheduler, for example after a long garbage collection
+ * pause, a suspended virtual machine, or a step of the wall clock. The
+ * firings of the pattern that fell between the scheduled time and the
+ * actual start are the missed firings of the misfire.
+ */
+public final class MisfirePolicy {
+
+    private static final MisfirePolicy FIRE_ONCE = new MisfirePolicy(false, 0);
+
+    private static final MisfirePolicy SKIP = new MisfirePolicy(true, 0);
+
+    private final boolean skip;
+
+    private final int maxReplays;
+
+    private MisfirePolicy(boolean skip, int maxReplays) {
+        this.skip = skip;
+        this.maxReplays = maxReplays;
+    }
+
+    /**
+     * The late firing runs once and the missed firings are
+     * coalesced into it. This is the default policy.
+     */
+    public static MisfirePolicy fireOnce() {
+        return FIRE_ONCE;
+    }
+
+    /**
+     * The late firing and the missed firings do not run. The
+     * job runs again at the next firing after the current time.
+     */
+    public static MisfirePolicy skip() {
+        return SKIP;
+    }
+
+    /**
+     * The late firing runs and then up to {@code maxReplays} of the
+     * missed firings are replayed. The replays run one after another
+     * on the same thread so that a long pause does not produce a burst
+     * of concurrent runs. Missed firings beyond the limit are dropped.
+     */
+    public static MisfirePolicy replay(int maxReplays) {
+        Preconditions.checkArgument(maxReplays >= 0, "Expected maxReplays >= 0, but %s < 0", maxReplays);
+        return (maxReplays == 0) ? FIRE_ONCE : new MisfirePolicy(false, maxReplays);
+    }
+
+    public boolean isSkip() {
+        return skip;
+    }
+
+    public int getMaxReplays() {
+        return maxReplays;
+    }
+
+    /**
+     * Returns the number of runs of a misfire with the
+     * given number of missed firings.
+     */
+    int runs(long missedFirings) {
+        if (skip) {
+            return 0;
+        } else {
+            return 1 + (int) Math.min(missedFirings, maxReplays);
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (skip) {
+            return "skip";
+        } else if (maxReplays == 0) {
+            return "fireOnce";
+        } else {
+            return "replay(" + maxReplays + ")";
+        }
+    }
+}
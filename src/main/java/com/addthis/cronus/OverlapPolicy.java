@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Determines what happens when a job fires while previous
+ * runs of the same job are still in progress.
+ */
+public final class OverlapPolicy {
+
+    private static final OverlapPolicy UNLIMITED = new OverlapPolicy(Integer.MAX_VALUE, false);
+
+    private static final OverlapPolicy SKIP = new OverlapPolicy(1, false);
+
+    private static final OverlapPolicy QUEUE_ONE = new OverlapPolicy(1, true);
+
+    private final int maxConcurrent;
+
+    private final boolean queueOne;
+
+    private OverlapPolicy(int maxConcurrent, boolean queueOne) {
+        this.maxConcurrent = maxConcurrent;
+        this.queueOne = queueOne;
+    }
+
+    /**
+     * Every firing runs regardless of the runs in progress.
+     * This is the default policy.
+     */
+    public static OverlapPolicy unlimited() {
+        return UNLIMITED;
+    }
+
+    /**
+     * A firing is skipped if a run is in progress.
+     */
+    public static OverlapPolicy skip() {
+        return SKIP;
+    }
+
+    /**
+     * A firing that occurs while a run is in progress is
+     * deferred until the run completes. Any number of such
+     * firings are coalesced into a single deferred run.
+     */
+    public static OverlapPolicy queueOne() {
+        return QUEUE_ONE;
+    }
+
+    /**
+     * Up to {@code maxConcurrent} runs may be in progress. A firing
+     * is skipped if the maximum number of runs are in progress.
+     */
+    public static OverlapPolicy allowConcurrent(int maxConcurrent) {
+        Preconditions.checkArgument(maxConcurrent > 0, "Expected maxConcurrent > 0, but %s <= 0", maxConcurrent);
+        return (maxConcurrent == 1) ? SKIP : new OverlapPolicy(maxConcurrent, false);
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public boolean isQueueOne() {
+        return queueOne;
+    }
+
+    @Override
+    public String toString() {
+        if (this == UNLIMITED) {
+            return "unlimited";
+        } else if (queueOne) {
+            return "queueOne";
+        } else if (maxConcurrent == 1) {
+            return "skip";
+        } else {
+            return "allowConcurrent(" + maxConcurrent + ")";
+        }
+    }
+}
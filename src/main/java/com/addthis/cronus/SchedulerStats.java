@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import java.time.Instant;
+
+/**
+ * Statistics of a scheduler that are exposed through JMX.
+ */
+final class SchedulerStats implements CronSchedulerMXBean {
+
+    private static final long MILLIS_PER_MINUTE = 60_000L;
+
+    @Nonnull
+    private final CronScheduler scheduler;
+
+    private final LongAdder firings = new LongAdder();
+
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * The minute of the wall clock in which firings are being counted.
+     */
+    private final AtomicLong currentMinute = new AtomicLong(Long.MIN_VALUE);
+
+    private final AtomicLong currentCount = new AtomicLong();
+
+    private final AtomicLong previousCount = new AtomicLong();
+
+    SchedulerStats(@Nonnull CronScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Counts a firing. Firings that race with the start of
+     * a new minute may be counted in the adjacent minute.
+     */
+    void recordFiring(long epochMilli) {
+        firings.increment();
+        long minute = Math.floorDiv(epochMilli, MILLIS_PER_MINUTE);
+        long seen = currentMinute.get();
+        if ((minute > seen) && currentMinute.compareAndSet(seen, minute)) {
+            long count = currentCount.getAndSet(0);
+            previousCount.set((minute == (seen + 1)) ? count : 0);
+        }
+        currentCount.incrementAndGet();
+    }
+
+    void recordRejected() {
+        rejected.incrementAndGet();
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    @Override
+    public int getJobCount() {
+        return scheduler.getJobCount();
+    }
+
+    @Override
+    public int getActiveRuns() {
+        return scheduler.getActiveRuns();
+    }
+
+    @Override
+    public int getPendingTimers() {
+        return CronScheduler.queueDepth(scheduler.getExecutor());
+    }
+
+    @Override
+    public int getExecutionQueueDepth() {
+        return scheduler.getExecutionQueueDepth();
+    }
+
+    @Override
+    public long getFirings() {
+        return firings.sum();
+    }
+
+    @Override
+    public long getFiringsPerMinute() {
+        long minute = Math.floorDiv(scheduler.currentTimeMillis(), MILLIS_PER_MINUTE);
+        long seen = currentMinute.get();
+        if (seen == minute) {
+            return previousCount.get();
+        } else if (seen == (minute - 1)) {
+            return currentCount.get();
+        } else {
+            return 0;
+        }
+    }
+
+    @Override
+    public long getRejectedExecutions() {
+        return rejected.get();
+    }
+
+    @Override
+    public double getLag50thPercentileMillis() {
+        return millis(scheduler.getLagSnapshot().getValueAtPercentile(50));
+    }
+
+    @Override
+    public double getLag99thPercentileMillis() {
+        return millis(scheduler.getLagSnapshot().getValueAtPercentile(99));
+    }
+
+    @Override
+    public double getLagMaxMillis() {
+        return millis(scheduler.getLagSnapshot().getMax());
+    }
+
+    @Override
+    public Date getNextDueTime() {
+        Instant next = scheduler.getNextDueTime();
+        return (next == null) ? null : Date.from(next);
+    }
+}
@@ -0,0 +1,412 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import com.addthis.cronus.internal.TimingWheel;
+
+import com.google.common.base.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A {@link ScheduledExecutorService} backed by a hierarchical timing wheel.
+ * A single timer thread owns the wheel. Other threads never touch the wheel:
+ * scheduled tasks and cancellations are handed to the timer thread through
+ * lock-free queues, so inserting and cancelling a task is O(1) and never
+ * contends on a shared lock. When a task expires the timer thread hands it
+ * off to a fixed pool of worker threads.
+ *
+ * The wheel has a resolution of one second for bucketing but tasks run
+ * at their exact deadline. This executor is suited to holding a large
+ * number of delayed tasks such as the next firing of each cron pattern.
+ * Select it with {@link CronScheduler.Builder#setEngine(CronScheduler.Engine)}.
+ */
+public class TimingWheelExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private static final Logger log = LoggerFactory.getLogger(TimingWheelExecutor.class);
+
+    private static final long TICK_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final int RUNNING = 0;
+
+    private static final int SHUTDOWN = 1;
+
+    private static final int STOP = 2;
+
+    @Nonnull
+    private final ThreadPoolExecutor workers;
+
+    @Nonnull
+    private final Thread timer;
+
+    private final boolean continueAfterShutdown;
+
+    /**
+     * Value of {@link System#nanoTime()} at construction. Deadlines
+     * are stored relative to the origin.
+     */
+    private final long origin;
+
+    @Nonnull
+    private final Queue<WheelTask<?>> insertions = new ConcurrentLinkedQueue<>();
+
+    @Nonnull
+    private final Queue<WheelTask<?>> cancellations = new ConcurrentLinkedQueue<>();
+
+    @Nonnull
+    private final AtomicInteger state = new AtomicInteger(RUNNING);
+
+    @Nonnull
+    private final CountDownLatch timerTerminated = new CountDownLatch(1);
+
+    /**
+     * Time at which the timer thread will wake up. Producers wake
+     * the timer thread if their task is due before this time.
+     */
+    private volatile long wakeTime = Long.MIN_VALUE;
+
+    /**
+     * Tasks that were never run. Assigned by the timer thread on exit.
+     */
+    @Nullable
+    private volatile List<Runnable> unstarted;
+
+    /**
+     * Confined to the timer thread.
+     */
+    @Nonnull
+    private final TimingWheel<WheelTask<?>> wheel;
+
+    public TimingWheelExecutor(int workerThreads) {
+        this(workerThreads, null, null, false);
+    }
+
+    /**
+     * @param workerThreads         number of threads that run expired tasks
+     * @param threadFactory         creates the timer and worker threads. If null then
+     *                              {@link Executors#defaultThreadFactory()} is used.
+     * @param handler               rejected execution handler of the worker pool.
+     *                              If null then the default policy is used.
+     * @param continueAfterShutdown if true then delayed tasks continue to run after
+     *                              shutdown. Otherwise they are cancelled on shutdown.
+     */
+    public TimingWheelExecutor(int workerThreads, @Nullable ThreadFactory threadFactory,
+                               @Nullable RejectedExecutionHandler handler, boolean continueAfterShutdown) {
+        Preconditions.checkArgument(workerThreads > 0, "Expected workerThreads > 0, but %s <= 0", workerThreads);
+        if (threadFactory == null) {
+            threadFactory = Executors.defaultThreadFactory();
+        }
+        this.workers = new ThreadPoolExecutor(workerThreads, workerThreads, 0L, TimeUnit.MILLISECONDS,
+                                              new LinkedBlockingQueue<>(), threadFactory);
+        if (handler != null) {
+            workers.setRejectedExecutionHandler(handler);
+        }
+        this.continueAfterShutdown = continueAfterShutdown;
+        this.origin = System.nanoTime();
+        this.wheel = new TimingWheel<>(TICK_NANOS, 0);
+        this.timer = threadFactory.newThread(this::runTimer);
+        Preconditions.checkState(timer != null, "threadFactory returned null");
+        timer.start();
+    }
+
+    private long now() {
+        return System.nanoTime() - origin;
+    }
+
+    private static long deadline(long now, long delayNanos) {
+        if (delayNanos <= 0) {
+            return now;
+        } else if (delayNanos >= Long.MAX_VALUE - now) {
+            return Long.MAX_VALUE;
+        } else {
+            return now + delayNanos;
+        }
+    }
+
+    private void runTimer() {
+        try {
+            while (true) {
+                long now = now();
+                wheel.advance(now);
+                WheelTask<?> task;
+                while ((task = insertions.poll()) != null) {
+                    if (!task.isCancelled()) {
+                        task.entry = wheel.add(task, task.deadline);
+                    }
+                }
+                while ((task = cancellations.poll()) != null) {
+                    if (task.entry != null) {
+                        wheel.remove(task.entry);
+                        task.entry = null;
+                    }
+                }
+                long next = wheel.expire(now, this::dispatch);
+                int current = state.get();
+                if ((current == STOP) ||
+                    ((current == SHUTDOWN) && (!continueAfterShutdown || (wheel.size() == 0)))) {
+                    break;
+                }
+                wakeTime = next;
+                if (!insertions.isEmpty() || !cancellations.isEmpty() || (state.get() != current)) {
+                    wakeTime = Long.MIN_VALUE;
+                    continue;
+                }
+                if (next == Long.MAX_VALUE) {
+                    LockSupport.park(this);
+                } else {
+                    LockSupport.parkNanos(this, next - now());
+                }
+                wakeTime = Long.MIN_VALUE;
+            }
+        } catch (Throwable ex) {
+            log.error("Timing wheel timer thread terminated unexpectedly: ", ex);
+        } finally {
+            List<Runnable> remaining = new ArrayList<>();
+            wheel.clear(remaining::add);
+            WheelTask<?> task;
+            while ((task = insertions.poll()) != null) {
+                remaining.add(task);
+            }
+            if (state.get() != STOP) {
+                for (Runnable runnable : remaining) {
+                    ((WheelTask<?>) runnable).cancel(false);
+                }
+                remaining.clear();
+            }
+            unstarted = remaining;
+            workers.shutdown();
+            timerTerminated.countDown();
+        }
+    }
+
+    private void dispatch(WheelTask<?> task) {
+        task.entry = null;
+        if (!task.isCancelled()) {
+            try {
+                workers.execute(task);
+            } catch (RejectedExecutionException ex) {
+                task.cancel(false);
+                log.warn("Worker pool rejected task: ", ex);
+            }
+        }
+    }
+
+    private <V> WheelTask<V> enqueue(WheelTask<V> task) {
+        if (state.get() != RUNNING) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        insertions.add(task);
+        if (task.deadline < wakeTime) {
+            LockSupport.unpark(timer);
+        }
+        if (state.get() != RUNNING && insertions.remove(task)) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        return task;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command argument must be non-null");
+        Preconditions.checkNotNull(unit, "unit argument must be non-null");
+        return enqueue(new WheelTask<Void>(command, null, deadline(now(), unit.toNanos(delay)), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        Preconditions.checkNotNull(callable, "callable argument must be non-null");
+        Preconditions.checkNotNull(unit, "unit argument must be non-null");
+        return enqueue(new WheelTask<>(callable, deadline(now(), unit.toNanos(delay))));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command argument must be non-null");
+        Preconditions.checkNotNull(unit, "unit argument must be non-null");
+        Preconditions.checkArgument(period > 0, "Expected period > 0, but %s <= 0", period);
+        return enqueue(new WheelTask<Void>(command, null, deadline(now(), unit.toNanos(initialDelay)),
+                                           unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                     TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command argument must be non-null");
+        Preconditions.checkNotNull(unit, "unit argument must be non-null");
+        Preconditions.checkArgument(delay > 0, "Expected delay > 0, but %s <= 0", delay);
+        return enqueue(new WheelTask<Void>(command, null, deadline(now(), unit.toNanos(initialDelay)),
+                                           -unit.toNanos(delay)));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void shutdown() {
+        state.compareAndSet(RUNNING, SHUTDOWN);
+        LockSupport.unpark(timer);
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        state.set(STOP);
+        LockSupport.unpark(timer);
+        boolean interrupted = false;
+        while (true) {
+            try {
+                timerTerminated.await();
+                break;
+            } catch (InterruptedException ex) {
+                interrupted = true;
+            }
+        }
+        List<Runnable> result = new ArrayList<>();
+        List<Runnable> remaining = unstarted;
+        if (remaining != null) {
+            result.addAll(remaining);
+        }
+        result.addAll(workers.shutdownNow());
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return state.get() != RUNNING;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return (timerTerminated.getCount() == 0) && workers.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        if (!timerTerminated.await(timeout, unit)) {
+            return false;
+        }
+        return workers.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    private class WheelTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /**
+         * Deadline relative to the origin. Periodic tasks update
+         * the deadline before they are inserted again.
+         */
+        private volatile long deadline;
+
+        /**
+         * Positive for fixed rate, negative for fixed delay, and zero for one-shot tasks.
+         */
+        private final long period;
+
+        /**
+         * Position in the wheel. Confined to the timer thread.
+         */
+        private TimingWheel.Entry<WheelTask<?>> entry;
+
+        WheelTask(Runnable runnable, V result, long deadline, long period) {
+            super(runnable, result);
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        WheelTask(Callable<V> callable, long deadline) {
+            super(callable);
+            this.deadline = deadline;
+            this.period = 0;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public long getDelay(@Nonnull TimeUnit unit) {
+            return unit.convert(deadline - now(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(@Nonnull Delayed other) {
+            if (other == this) {
+                return 0;
+            } else if (other instanceof WheelTask) {
+                return Long.compare(deadline, ((WheelTask<?>) other).deadline);
+            } else {
+                return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            if (cancelled) {
+                cancellations.add(this);
+            }
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (runAndReset()) {
+                if (state.get() != RUNNING) {
+                    super.cancel(false);
+                    return;
+                }
+                deadline = (period > 0) ? (deadline + period) : deadline(now(), -period);
+                try {
+                    enqueue(this);
+                } catch (RejectedExecutionException ex) {
+                    super.cancel(false);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Access to virtual threads on runtimes that support them. The library
+ * is compiled for Java 8 so the virtual thread executor is located by
+ * reflection. On older runtimes the lookup fails and no executor
+ * is returned.
+ */
+final class VirtualThreads {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreads.class);
+
+    @Nullable
+    private static final Method NEW_EXECUTOR = lookup();
+
+    private VirtualThreads() {}
+
+    @Nullable
+    private static Method lookup() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        } catch (NoSuchMethodException | SecurityException ex) {
+            return null;
+        }
+    }
+
+    static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Returns an executor that starts a new virtual thread for each task,
+     * or null if virtual threads are not supported by the runtime.
+     */
+    @Nullable
+    static ExecutorService newExecutor() {
+        if (NEW_EXECUTOR == null) {
+            return null;
+        }
+        try {
+            return (ExecutorService) NEW_EXECUTOR.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException ex) {
+            log.warn("Unable to create virtual thread executor: ", ex);
+            return null;
+        }
+    }
+}
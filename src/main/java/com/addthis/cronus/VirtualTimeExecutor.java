@@ -0,0 +1,397 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableScheduledFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A {@link ScheduledExecutorService} that runs on a virtual clock. Time
+ * only moves when {@link #advanceTo(Instant)} or {@link #advance(Duration)}
+ * is called. Every task that is due runs in deadline order on the calling
+ * thread, and the clock is moved to the deadline of each task before the
+ * task runs. A month of scheduling can be simulated in seconds. Periodic
+ * tasks are queued again after each run.
+ *
+ * {@link #runNext()} runs one task at a time and {@link #stall(Duration)}
+ * moves the clock without running tasks, so that tests can make tasks
+ * overlap or run late.
+ *
+ * Select it with {@link CronScheduler.Builder#setVirtualTime(VirtualTimeExecutor)},
+ * which also makes the scheduler read the current time from {@link #getClock()}.
+ * Tasks may be scheduled from any thread but only one thread should
+ * advance the clock.
+ */
+public class VirtualTimeExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+
+    @GuardedBy("this")
+    private final PriorityQueue<VirtualTask<?>> queue = new PriorityQueue<>();
+
+    @Nonnull
+    private final Clock clock;
+
+    /**
+     * Current virtual time in nanoseconds since the epoch.
+     */
+    private volatile long now;
+
+    @GuardedBy("this")
+    private long sequence;
+
+    /**
+     * Number of tasks in the queue that have not been cancelled.
+     */
+    @GuardedBy("this")
+    private int pending;
+
+    @GuardedBy("this")
+    private boolean shutdown;
+
+    /**
+     * The clock starts at {@code start} and reports time in {@code zone}.
+     */
+    public VirtualTimeExecutor(@Nonnull Instant start, @Nonnull ZoneId zone) {
+        Preconditions.checkNotNull(start, "start argument must be non-null");
+        Preconditions.checkNotNull(zone, "zone argument must be non-null");
+        this.now = toNanos(start);
+        this.clock = new VirtualClock(zone);
+    }
+
+    private static long toNanos(Instant instant) {
+        return Math.addExact(Math.multiplyExact(instant.getEpochSecond(), 1_000_000_000L), instant.getNano());
+    }
+
+    /**
+     * Returns a clock that reads the virtual time.
+     */
+    @Nonnull
+    public Clock getClock() {
+        return clock;
+    }
+
+    @Nonnull
+    public Instant now() {
+        return Instant.ofEpochSecond(0, now);
+    }
+
+    /**
+     * Returns the number of tasks that are waiting to run.
+     */
+    public synchronized int getQueueSize() {
+        return pending;
+    }
+
+    /**
+     * Moves the clock forward by {@code duration} and runs the tasks that are due.
+     * Returns the number of tasks that were run.
+     */
+    public int advance(@Nonnull Duration duration) {
+        Preconditions.checkNotNull(duration, "duration argument must be non-null");
+        Preconditions.checkArgument(!duration.isNegative(), "Expected duration >= 0, but %s < 0", duration);
+        return advanceTo(now().plus(duration));
+    }
+
+    /**
+     * Runs all tasks with a deadline up to and including {@code end} and
+     * then moves the clock to {@code end}. Tasks that are scheduled by the
+     * running tasks also run if they are due. The clock never moves backward.
+     * Returns the number of tasks that were run.
+     */
+    public int advanceTo(@Nonnull Instant end) {
+        Preconditions.checkNotNull(end, "end argument must be non-null");
+        long limit = toNanos(end);
+        int count = 0;
+        VirtualTask<?> task;
+        while ((task = poll(limit)) != null) {
+            task.run();
+            count++;
+        }
+        synchronized (this) {
+            now = Math.max(now, limit);
+        }
+        return count;
+    }
+
+    /**
+     * Runs the task with the earliest deadline, moving the clock to its
+     * deadline if the deadline is in the future. Returns false if no task
+     * is waiting to run.
+     */
+    public boolean runNext() {
+        VirtualTask<?> task = poll(Long.MAX_VALUE);
+        if (task == null) {
+            return false;
+        }
+        task.run();
+        return true;
+    }
+
+    /**
+     * Moves the clock forward by {@code duration} without running any tasks,
+     * as if the thread that runs the tasks had stalled. The tasks that become
+     * due run late on the next call to {@link #runNext()} or {@link #advance(Duration)}.
+     */
+    public void stall(@Nonnull Duration duration) {
+        Preconditions.checkNotNull(duration, "duration argument must be non-null");
+        Preconditions.checkArgument(!duration.isNegative(), "Expected duration >= 0, but %s < 0", duration);
+        long limit = toNanos(now().plus(duration));
+        synchronized (this) {
+            now = Math.max(now, limit);
+        }
+    }
+
+    /**
+     * Removes the next task with a deadline up to and including {@code limit}
+     * and moves the clock to its deadline. Returns null if there is no such task.
+     */
+    private synchronized VirtualTask<?> poll(long limit) {
+        VirtualTask<?> task;
+        while (((task = queue.peek()) != null) && (task.deadline <= limit)) {
+            queue.poll();
+            if (!task.isCancelled()) {
+                task.queued = false;
+                pending--;
+                now = Math.max(now, task.deadline);
+                return task;
+            }
+        }
+        return null;
+    }
+
+    private synchronized <V> VirtualTask<V> add(VirtualTask<V> task) {
+        if (shutdown) {
+            throw new RejectedExecutionException("Executor has been shut down");
+        }
+        if (task.isCancelled()) {
+            return task;
+        }
+        task.order = sequence++;
+        queue.add(task);
+        task.queued = true;
+        pending++;
+        return task;
+    }
+
+    private synchronized void cancelled(VirtualTask<?> task) {
+        if (task.queued) {
+            task.queued = false;
+            pending--;
+        }
+    }
+
+    private long deadline(long delay, TimeUnit unit) {
+        return now + Math.max(0, unit.toNanos(delay));
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command argument must be non-null");
+        return add(new VirtualTask<Void>(command, deadline(delay, unit), 0));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        Preconditions.checkNotNull(callable, "callable argument must be non-null");
+        return add(new VirtualTask<>(callable, deadline(delay, unit)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command argument must be non-null");
+        Preconditions.checkArgument(period > 0, "Expected period > 0, but %s <= 0", period);
+        return add(new VirtualTask<Void>(command, deadline(initialDelay, unit), unit.toNanos(period)));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay,
+                                                     TimeUnit unit) {
+        Preconditions.checkNotNull(command, "command argument must be non-null");
+        Preconditions.checkArgument(delay > 0, "Expected delay > 0, but %s <= 0", delay);
+        return add(new VirtualTask<Void>(command, deadline(initialDelay, unit), -unit.toNanos(delay)));
+    }
+
+    /**
+     * Runs the command on the next call to {@link #advance(Duration)}
+     * or {@link #advanceTo(Instant)}.
+     */
+    @Override
+    public void execute(@Nonnull Runnable command) {
+        schedule(command, 0, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public synchronized void shutdown() {
+        shutdown = true;
+    }
+
+    @Nonnull
+    @Override
+    public synchronized List<Runnable> shutdownNow() {
+        shutdown = true;
+        List<Runnable> result = new ArrayList<>(queue.size());
+        for (VirtualTask<?> task : queue) {
+            task.queued = false;
+            result.add(task);
+        }
+        queue.clear();
+        pending = 0;
+        return result;
+    }
+
+    @Override
+    public synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public synchronized boolean isTerminated() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, @Nonnull TimeUnit unit) {
+        return isTerminated();
+    }
+
+    private final class VirtualClock extends Clock {
+
+        @Nonnull
+        private final ZoneId zone;
+
+        VirtualClock(@Nonnull ZoneId zone) {
+            this.zone = zone;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return zone;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return new VirtualClock(zone);
+        }
+
+        @Override
+        public Instant instant() {
+            return now();
+        }
+
+        @Override
+        public long millis() {
+            return Math.floorDiv(now, 1_000_000L);
+        }
+    }
+
+    private final class VirtualTask<V> extends FutureTask<V> implements RunnableScheduledFuture<V> {
+
+        /**
+         * Deadline in nanoseconds since the epoch. Periodic tasks
+         * update the deadline before they are queued again.
+         */
+        private volatile long deadline;
+
+        /**
+         * Positive for fixed rate, negative for fixed delay, and zero for one-shot tasks.
+         */
+        private final long period;
+
+        /**
+         * Breaks ties between tasks with the same deadline in the order they were queued.
+         */
+        @GuardedBy("VirtualTimeExecutor.this")
+        private long order;
+
+        /**
+         * True while the task is waiting in the queue.
+         */
+        @GuardedBy("VirtualTimeExecutor.this")
+        private boolean queued;
+
+        VirtualTask(Runnable runnable, long deadline, long period) {
+            super(runnable, null);
+            this.deadline = deadline;
+            this.period = period;
+        }
+
+        VirtualTask(Callable<V> callable, long deadline) {
+            super(callable);
+            this.deadline = deadline;
+            this.period = 0;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean result = super.cancel(mayInterruptIfRunning);
+            if (result) {
+                cancelled(this);
+            }
+            return result;
+        }
+
+        @Override
+        public boolean isPeriodic() {
+            return period != 0;
+        }
+
+        @Override
+        public void run() {
+            if (!isPeriodic()) {
+                super.run();
+            } else if (runAndReset()) {
+                deadline = (period > 0) ? (deadline + period) : (now - period);
+                try {
+                    add(this);
+                } catch (RejectedExecutionException ex) {
+                    super.cancel(false);
+                }
+            }
+        }
+
+        @Override
+        public long getDelay(@Nonnull TimeUnit unit) {
+            return unit.convert(deadline - now, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(@Nonnull Delayed other) {
+            if (other instanceof VirtualTask) {
+                VirtualTask<?> task = (VirtualTask<?>) other;
+                int result = Long.compare(deadline, task.deadline);
+                return (result != 0) ? result : Long.compare(order, task.order);
+            }
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
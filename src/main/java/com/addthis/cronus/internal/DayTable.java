@@ -0,0 +1,201 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus.internal;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Immutable table of the days matched by the month, dayOfMonth,
+ * and dayOfWeek components of a cron pattern. The days of a month
+ * that match only depend on the length of the month and the day
+ * of week of the first day of the month. A bitmap is precomputed
+ * for each of these 28 combinations where bit {@code i} represents
+ * day {@code i + 1} of the month. Searching for the next or previous
+ * matching day is a bit scan within the month, skipping over
+ * months that are not enabled by the month component.
+ */
+public final class DayTable {
+
+    private static final int MIN_MONTH_LENGTH = 28;
+
+    private static final int MAX_MONTH_LENGTH = 31;
+
+    private static final int DAYS_PER_WEEK = 7;
+
+    private final Interval month;
+
+    /**
+     * Indexed by {@code (lengthOfMonth - 28) * 7 + dayOfWeekOfFirstDay}.
+     */
+    private final int[] masks;
+
+    /**
+     * True if no enabled month can contain an enabled day.
+     */
+    private final boolean isEmpty;
+
+    public DayTable(Interval month, Interval dayOfMonth, Interval dayOfWeek) {
+        TimePeriod.MONTH.validate(month);
+        TimePeriod.DAYOFMONTH.validate(dayOfMonth);
+        TimePeriod.DAYOFWEEK.validate(dayOfWeek);
+        this.month = month;
+        this.masks = new int[(MAX_MONTH_LENGTH - MIN_MONTH_LENGTH + 1) * DAYS_PER_WEEK];
+        int dayOfMonthMask = (int) dayOfMonth.getMask();
+        int dayOfWeekMask = (int) dayOfWeek.getMask();
+        for (int length = MIN_MONTH_LENGTH; length <= MAX_MONTH_LENGTH; length++) {
+            for (int first = 0; first < DAYS_PER_WEEK; first++) {
+                int weekdays = 0;
+                for (int day = 0; day < length; day++) {
+                    if ((dayOfWeekMask & (1 << ((first + day) % DAYS_PER_WEEK))) != 0) {
+                        weekdays |= (1 << day);
+                    }
+                }
+                int mask;
+                if (dayOfMonth.isFull() && dayOfWeek.isFull()) {
+                    mask = -1;
+                } else if (dayOfMonth.isFull()) {
+                    mask = weekdays;
+                } else if (dayOfWeek.isFull()) {
+                    mask = dayOfMonthMask;
+                } else {
+                    mask = weekdays | dayOfMonthMask;
+                }
+                mask &= (-1 >>> (Integer.SIZE - length));
+                masks[(length - MIN_MONTH_LENGTH) * DAYS_PER_WEEK + first] = mask;
+            }
+        }
+        this.isEmpty = calculateIsEmpty();
+    }
+
+    private boolean calculateIsEmpty() {
+        for (int monthValue = TimePeriod.MONTH.min; monthValue <= TimePeriod.MONTH.max; monthValue++) {
+            if (month.test(monthValue)) {
+                // February is the only month of variable length
+                int minLength = (monthValue == 2) ? MIN_MONTH_LENGTH : EpochCalendar.lengthOfMonth(1, monthValue);
+                int maxLength = (monthValue == 2) ? (MIN_MONTH_LENGTH + 1) : minLength;
+                for (int length = minLength; length <= maxLength; length++) {
+                    for (int first = 0; first < DAYS_PER_WEEK; first++) {
+                        if (masks[(length - MIN_MONTH_LENGTH) * DAYS_PER_WEEK + first] != 0) {
+                            return false;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the days of the month that match as a bitmap
+     * where bit {@code i} represents day {@code i + 1}.
+     */
+    public int monthMask(long year, int monthValue) {
+        if (!month.test(monthValue)) {
+            return 0;
+        }
+        int length = EpochCalendar.lengthOfMonth(year, monthValue);
+        int first = EpochCalendar.dayOfWeek(EpochCalendar.toEpochDay(year, monthValue, 1));
+        return masks[(length - MIN_MONTH_LENGTH) * DAYS_PER_WEEK + first];
+    }
+
+    public boolean test(long epochDay) {
+        long date = EpochCalendar.toPackedDate(epochDay);
+        int day = EpochCalendar.dayOfMonth(date);
+        return (monthMask(EpochCalendar.year(date), EpochCalendar.month(date)) & (1 << (day - 1))) != 0;
+    }
+
+    /**
+     * Returns the first matching epoch day greater than or equal to the input.
+     * The table must not be empty.
+     */
+    public long nextDay(long epochDay) {
+        Preconditions.checkState(!isEmpty, "day table is empty");
+        long date = EpochCalendar.toPackedDate(epochDay);
+        long year = EpochCalendar.year(date);
+        int monthValue = EpochCalendar.month(date);
+        int day = EpochCalendar.dayOfMonth(date);
+        while (true) {
+            int mask = monthMask(year, monthValue) & (-1 << (day - 1));
+            if (mask != 0) {
+                return EpochCalendar.toEpochDay(year, monthValue, Integer.numberOfTrailingZeros(mask) + 1);
+            }
+            monthValue = (monthValue < TimePeriod.MONTH.max) ? month.nextInt(monthValue, false) : -1;
+            if (monthValue == -1) {
+                year++;
+                monthValue = month.nextInt(TimePeriod.MONTH.min, true);
+            }
+            day = 1;
+        }
+    }
+
+    /**
+     * Returns the last matching epoch day less than or equal to the input.
+     * The table must not be empty.
+     */
+    public long previousDay(long epochDay) {
+        Preconditions.checkState(!isEmpty, "day table is empty");
+        long date = EpochCalendar.toPackedDate(epochDay);
+        long year = EpochCalendar.year(date);
+        int monthValue = EpochCalendar.month(date);
+        int day = EpochCalendar.dayOfMonth(date);
+        while (true) {
+            int mask = monthMask(year, monthValue) & (-1 >>> (Integer.SIZE - day));
+            if (mask != 0) {
+                return EpochCalendar.toEpochDay(year, monthValue,
+                                                Integer.SIZE - Integer.numberOfLeadingZeros(mask));
+            }
+            monthValue = (monthValue > TimePeriod.MONTH.min) ? month.previousInt(monthValue, false) : -1;
+            if (monthValue == -1) {
+                year--;
+                monthValue = month.previousInt(TimePeriod.MONTH.max, true);
+            }
+            day = MAX_MONTH_LENGTH;
+        }
+    }
+
+    /**
+     * Returns the number of matching epoch days in the range [from, to).
+     * The cost is proportional to the number of months in the range.
+     */
+    public long countDays(long from, long to) {
+        if (from >= to) {
+            return 0;
+        }
+        long date = EpochCalendar.toPackedDate(from);
+        long year = EpochCalendar.year(date);
+        int monthValue = EpochCalendar.month(date);
+        int day = EpochCalendar.dayOfMonth(date);
+        long monthStart = from - (day - 1);
+        long count = 0;
+        while (monthStart < to) {
+            int length = EpochCalendar.lengthOfMonth(year, monthValue);
+            int mask = monthMask(year, monthValue) & (-1 << (day - 1));
+            if (to - monthStart < length) {
+                mask &= (1 << (to - monthStart)) - 1;
+            }
+            count += Integer.bitCount(mask);
+            monthStart += length;
+            day = 1;
+            if (++monthValue > TimePeriod.MONTH.max) {
+                monthValue = TimePeriod.MONTH.min;
+                year++;
+            }
+        }
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return isEmpty;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus.internal;
+
+/**
+ * Allocation-free proleptic Gregorian calendar arithmetic on epoch days.
+ * Epoch day zero is 1970-01-01. Dates are returned in a packed
+ * representation to avoid allocating a date object; use
+ * {@link #year(long)}, {@link #month(long)} and {@link #dayOfMonth(long)}
+ * to unpack the fields.
+ *
+ * The conversions are the "days from civil" and "civil from days"
+ * algorithms by Howard Hinnant, which operate on 400 year eras.
+ */
+public final class EpochCalendar {
+
+    public static final int MINUTES_PER_HOUR = 60;
+
+    public static final int MINUTES_PER_DAY = 1440;
+
+    private static final long DAYS_PER_ERA = 146097;
+
+    /**
+     * Number of days from 0000-03-01 to 1970-01-01.
+     */
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    private EpochCalendar() {}
+
+    /**
+     * Returns the packed date of the epoch day.
+     */
+    public static long toPackedDate(long epochDay) {
+        long shifted = epochDay + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+        long dayOfEra = shifted - era * DAYS_PER_ERA;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * shiftedMonth + 2) / 5 + 1);
+        int month = (int) ((shiftedMonth < 10) ? (shiftedMonth + 3) : (shiftedMonth - 9));
+        long year = yearOfEra + era * 400 + ((month <= 2) ? 1 : 0);
+        return pack(year, month, day);
+    }
+
+    /**
+     * Returns the epoch day of the date.
+     *
+     * @param year   proleptic year
+     * @param month  month of year from 1 to 12
+     * @param day    day of month from 1 to 31
+     */
+    public static long toEpochDay(long year, int month, int day) {
+        year -= (month <= 2) ? 1 : 0;
+        long era = Math.floorDiv(year, 400L);
+        long yearOfEra = year - era * 400;
+        long dayOfYear = (153 * ((month > 2) ? (month - 3) : (month + 9)) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    public static long pack(long year, int month, int day) {
+        return (year << 9) | (month << 5) | day;
+    }
+
+    public static long year(long packedDate) {
+        return packedDate >> 9;
+    }
+
+    public static int month(long packedDate) {
+        return (int) ((packedDate >> 5) & 0xf);
+    }
+
+    public static int dayOfMonth(long packedDate) {
+        return (int) (packedDate & 0x1f);
+    }
+
+    /**
+     * Returns the cron day of week of the epoch day,
+     * where 0 is Sunday and 6 is Saturday.
+     */
+    public static int dayOfWeek(long epochDay) {
+        // 1970-01-01 was a Thursday
+        return (int) Math.floorMod(epochDay + 4, 7L);
+    }
+
+    public static boolean isLeapYear(long year) {
+        return ((year & 3) == 0) && ((year % 100) != 0 || (year % 400) == 0);
+    }
+
+    public static int lengthOfMonth(long year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    /**
+     * Returns the epoch day of the local epoch minute.
+     */
+    public static long epochDay(long epochMinute) {
+        return Math.floorDiv(epochMinute, (long) MINUTES_PER_DAY);
+    }
+
+    /**
+     * Returns the minute of day of the local epoch minute.
+     */
+    public static int minuteOfDay(long epochMinute) {
+        return (int) Math.floorMod(epochMinute, (long) MINUTES_PER_DAY);
+    }
+
+    /**
+     * Returns the smallest integer greater than or equal to the quotient.
+     */
+    public static long ceilDiv(long dividend, long divisor) {
+        return -Math.floorDiv(-dividend, divisor);
+    }
+}
@@ -13,37 +13,54 @@
  */
 package com.addthis.cronus.internal;
 
-import java.util.BitSet;
-import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.AbstractIterator;
 
 /**
  * Immutable representation of a time interval.
  * Each possible index within the interval is either
  * enabled or disabled. Instances are constructed using
- * the {@link Interval.Builder} class.
+ * the {@link Interval.Builder} class. The interval is
+ * stored as a single 64-bit mask so the range of an
+ * interval is limited to 64 indices and the minimum
+ * index must be non-negative.
  */
 public class Interval {
 
-    private final BitSet bitSet;
+    /**
+     * Maximum number of indices that can be stored in an interval.
+     */
+    public static final int CAPACITY = Long.SIZE;
+
+    /**
+     * Bit {@code i} of the mask represents index {@code i + min}.
+     */
+    private final long mask;
+
+    private final long fullMask;
 
     private final int min;
 
     private final int max;
 
-    private Interval(int min, int max, BitSet bitSet) {
+    private Interval(int min, int max, long mask) {
         this.min = min;
         this.max = max;
-        this.bitSet = bitSet;
+        this.mask = mask;
+        this.fullMask = fullMask(min, max);
+    }
+
+    private static long fullMask(int min, int max) {
+        return -1L >>> (CAPACITY - (max - min + 1));
     }
 
     public boolean test(int value) {
         Preconditions.checkArgument(min <= value, "Expected min <= value, but %s > %s", min, value);
         Preconditions.checkArgument(max >= value, "Expected max >= value, but %s < %s", max, value);
-        value -= min;
-        return bitSet.get(value);
+        return (mask & (1L << (value - min))) != 0;
     }
 
     public int getMin() {
@@ -54,40 +71,86 @@ public class Interval {
         return max;
     }
 
+    /**
+     * Returns the underlying mask where bit {@code i} represents index {@code i + min}.
+     */
+    public long getMask() {
+        return mask;
+    }
+
     public boolean isEmpty() {
-        return bitSet.isEmpty();
+        return mask == 0;
     }
 
-    public boolean isFull() { return bitSet.cardinality() == (max - min + 1); }
+    public boolean isFull() { return mask == fullMask; }
 
-    public Iterator<Integer> indexIterator() {
+    /**
+     * Returns the number of enabled indices.
+     */
+    public int cardinality() {
+        return Long.bitCount(mask);
+    }
+
+    public PrimitiveIterator.OfInt indexIterator() {
         return indexIterator(min);
     }
 
-    public Iterator<Integer> indexIterator(final int start) {
+    public PrimitiveIterator.OfInt indexIterator(final int start) {
         Preconditions.checkArgument(min <= start, "Expected min <= start, but %s > %s", min, start);
         Preconditions.checkArgument(max >= start, "Expected max >= start, but %s < %s", max, start);
-        return new AbstractIterator<Integer>() {
-            int current = start - min;
-            protected Integer computeNext() {
-                int next = bitSet.nextSetBit(current);
-                if (next == -1) {
-                    return endOfData();
-                } else {
-                    current = next + 1;
-                    return next + min;
+        return new PrimitiveIterator.OfInt() {
+            long remaining = mask & (-1L << (start - min));
+
+            @Override public boolean hasNext() {
+                return remaining != 0;
+            }
+
+            @Override public int nextInt() {
+                if (remaining == 0) {
+                    throw new NoSuchElementException();
                 }
+                int next = Long.numberOfTrailingZeros(remaining);
+                remaining &= (remaining - 1);
+                return next + min;
             }
         };
     }
 
+    /**
+     * Performs the action on each enabled index in ascending order.
+     */
+    public void forEach(IntConsumer action) {
+        Preconditions.checkNotNull(action, "action argument must be non-null");
+        long remaining = mask;
+        while (remaining != 0) {
+            action.accept(Long.numberOfTrailingZeros(remaining) + min);
+            remaining &= (remaining - 1);
+        }
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        if (this == other) {
+            return true;
+        } else if (!(other instanceof Interval)) {
+            return false;
+        }
+        Interval interval = (Interval) other;
+        return (min == interval.min) && (max == interval.max) && (mask == interval.mask);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * min + max) + Long.hashCode(mask);
+    }
+
     public static class Builder {
 
         private final int min;
 
         private final int max;
 
-        private final BitSet bitSet;
+        private long mask;
 
         /**
          * Set all indices in this interval to the value.
@@ -95,7 +158,7 @@ public class Interval {
          * @return this interval
          */
         public Builder setAll(boolean value) {
-            bitSet.set(0, (max - min + 1), value);
+            mask = value ? fullMask(min, max) : 0L;
             return this;
         }
 
@@ -112,7 +175,8 @@ public class Interval {
             Preconditions.checkArgument(low <= high, "Expected low <= high, but %s > %s", low, high);
             low -= min;
             high -= min;
-            bitSet.set(low, high + 1, value);
+            long bits = (-1L << low) & (-1L >>> (CAPACITY - 1 - high));
+            mask = value ? (mask | bits) : (mask & ~bits);
             return this;
         }
 
@@ -131,9 +195,11 @@ public class Interval {
             Preconditions.checkArgument(increment >= 1, "Expected increment >= 1, but %s < 1", increment);
             low -= min;
             high -= min;
+            long bits = 0L;
             for (int i = low; i <= high; i += increment) {
-                bitSet.set(i, value);
+                bits |= (1L << i);
             }
+            mask = value ? (mask | bits) : (mask & ~bits);
             return this;
         }
 
@@ -146,8 +212,8 @@ public class Interval {
         public Builder setIndex(int index, boolean value) {
             Preconditions.checkArgument(min <= index, "Expected min <= index, but %s > %s", min, index);
             Preconditions.checkArgument(max >= index, "Expected max >= index, but %s < %s", max, index);
-            index -= min;
-            bitSet.set(index, value);
+            long bit = 1L << (index - min);
+            mask = value ? (mask | bit) : (mask & ~bit);
             return this;
         }
 
@@ -159,49 +225,65 @@ public class Interval {
          */
         public Builder(int min, int max) {
             Preconditions.checkArgument(min <= max, "Expected min <= max, but %s > %s", min, max);
+            Preconditions.checkArgument(min >= 0, "Expected min >= 0, but %s < 0", min);
+            Preconditions.checkArgument(max - min < CAPACITY, "Expected at most %s indices, but found %s",
+                                        CAPACITY, max - min + 1);
             this.min = min;
             this.max = max;
-            this.bitSet = new BitSet(max - min + 1);
         }
 
         public Builder(Interval interval) {
             this.min = interval.min;
             this.max = interval.max;
-            this.bitSet = (BitSet) interval.bitSet.clone();
+            this.mask = interval.mask;
         }
 
         public Interval build() {
-            return new Interval(min, max, bitSet);
+            return new Interval(min, max, mask);
         }
 
     }
 
+    /**
+     * Returns the previous index that is set, or -1 if no index is available.
+     */
+    public int previousInt(int index, boolean inclusive) {
+        Preconditions.checkArgument(min <= index, "Expected min <= index, but %s > %s", min, index);
+        Preconditions.checkArgument(max >= index, "Expected max >= index, but %s < %s", max, index);
+        int offset = index - min;
+        // bits [0, offset] when inclusive and [0, offset - 1] when exclusive
+        long candidates = inclusive ? (mask & (-1L >>> (CAPACITY - 1 - offset))) :
+                          (mask & ((1L << offset) - 1));
+        return (candidates == 0) ? -1 : (CAPACITY - 1 - Long.numberOfLeadingZeros(candidates)) + min;
+    }
 
     /**
-     * Returns the previous index that is set, or null if no index is available.
+     * Returns the next index that is set, or -1 if no index is available.
      */
-    public Integer previous(int index, boolean inclusive) {
+    public int nextInt(int index, boolean inclusive) {
         Preconditions.checkArgument(min <= index, "Expected min <= index, but %s > %s", min, index);
         Preconditions.checkArgument(max >= index, "Expected max >= index, but %s < %s", max, index);
-        if ((index == min) && !inclusive) {
-            return null;
+        int offset = index - min + (inclusive ? 0 : 1);
+        if (offset >= CAPACITY) {
+            return -1;
         }
-        index -= min;
-        int result = bitSet.previousSetBit(index - (inclusive ? 0 : 1));
-        return (result == -1) ? null : result + min;
+        long candidates = mask & (-1L << offset);
+        return (candidates == 0) ? -1 : Long.numberOfTrailingZeros(candidates) + min;
+    }
+
+    /**
+     * Returns the previous index that is set, or null if no index is available.
+     */
+    public Integer previous(int index, boolean inclusive) {
+        int result = previousInt(index, inclusive);
+        return (result == -1) ? null : result;
     }
 
     /**
      * Returns the next index that is set, or null if no index is available.
      */
     public Integer next(int index, boolean inclusive) {
-        Preconditions.checkArgument(min <= index, "Expected min <= index, but %s > %s", min, index);
-        Preconditions.checkArgument(max >= index, "Expected max >= index, but %s < %s", max, index);
-        if ((index == max) && !inclusive) {
-            return null;
-        }
-        index -= min;
-        int result = bitSet.nextSetBit(index + (inclusive ? 0 : 1));
-        return (result == -1) ? null : result + min;
+        int result = nextInt(index, inclusive);
+        return (result == -1) ? null : result;
     }
 }
@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus.internal;
+
+import com.google.common.base.Preconditions;
+
+import static com.addthis.cronus.internal.EpochCalendar.MINUTES_PER_DAY;
+import static com.addthis.cronus.internal.EpochCalendar.MINUTES_PER_HOUR;
+
+/**
+ * Immutable table of the minutes of the day matched by the minute
+ * and hour components of a cron pattern. The table is a 1440-bit
+ * bitmap stored in 23 longs where bit {@code i} represents minute
+ * {@code i} of the day. Testing a minute is a single bit probe and
+ * searching for the next or previous minute is a scan of at most
+ * 23 words.
+ */
+public final class MinuteTable {
+
+    private static final int WORDS = (MINUTES_PER_DAY + Long.SIZE - 1) / Long.SIZE;
+
+    private final long[] words;
+
+    private final int cardinality;
+
+    public MinuteTable(Interval minute, Interval hour) {
+        TimePeriod.MINUTE.validate(minute);
+        TimePeriod.HOUR.validate(hour);
+        this.words = new long[WORDS];
+        long minuteMask = minute.getMask();
+        for (int currentHour = hour.nextInt(TimePeriod.HOUR.min, true); currentHour != -1;
+             currentHour = (currentHour < TimePeriod.HOUR.max) ? hour.nextInt(currentHour, false) : -1) {
+            int position = currentHour * MINUTES_PER_HOUR;
+            int word = position >>> 6;
+            int shift = position & 63;
+            words[word] |= (minuteMask << shift);
+            if (shift + MINUTES_PER_HOUR > Long.SIZE) {
+                words[word + 1] |= (minuteMask >>> (Long.SIZE - shift));
+            }
+        }
+        int count = 0;
+        for (long word : words) {
+            count += Long.bitCount(word);
+        }
+        this.cardinality = count;
+    }
+
+    public boolean test(int minuteOfDay) {
+        Preconditions.checkElementIndex(minuteOfDay, MINUTES_PER_DAY, "minuteOfDay");
+        return (words[minuteOfDay >>> 6] & (1L << minuteOfDay)) != 0;
+    }
+
+    /**
+     * Returns the first enabled minute of the day greater than or equal
+     * to the input, or -1 if no minute is available. The input may be
+     * equal to 1440 in which case -1 is returned.
+     */
+    public int next(int minuteOfDay) {
+        Preconditions.checkPositionIndex(minuteOfDay, MINUTES_PER_DAY, "minuteOfDay");
+        if (minuteOfDay == MINUTES_PER_DAY) {
+            return -1;
+        }
+        int index = minuteOfDay >>> 6;
+        long word = words[index] & (-1L << minuteOfDay);
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            } else if (++index == WORDS) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+
+    /**
+     * Returns the last enabled minute of the day less than or equal
+     * to the input, or -1 if no minute is available. The input may be
+     * equal to -1 in which case -1 is returned.
+     */
+    public int previous(int minuteOfDay) {
+        Preconditions.checkPositionIndex(minuteOfDay + 1, MINUTES_PER_DAY, "minuteOfDay + 1");
+        if (minuteOfDay == -1) {
+            return -1;
+        }
+        int index = minuteOfDay >>> 6;
+        long word = words[index] & (-1L >>> (63 - (minuteOfDay & 63)));
+        while (true) {
+            if (word != 0) {
+                return (index << 6) + 63 - Long.numberOfLeadingZeros(word);
+            } else if (--index < 0) {
+                return -1;
+            }
+            word = words[index];
+        }
+    }
+
+    /**
+     * Returns the number of enabled minutes in the range [from, to).
+     */
+    public int count(int from, int to) {
+        Preconditions.checkPositionIndexes(from, to, MINUTES_PER_DAY);
+        if (from == to) {
+            return 0;
+        }
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long lowMask = -1L << from;
+        long highMask = -1L >>> (63 - ((to - 1) & 63));
+        if (first == last) {
+            return Long.bitCount(words[first] & lowMask & highMask);
+        }
+        int count = Long.bitCount(words[first] & lowMask);
+        for (int i = first + 1; i < last; i++) {
+            count += Long.bitCount(words[i]);
+        }
+        return count + Long.bitCount(words[last] & highMask);
+    }
+
+    /**
+     * Returns the number of enabled minutes in the day.
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+}
@@ -13,16 +13,7 @@
  */
 package com.addthis.cronus.internal;
 
-import java.util.Locale;
-import java.util.Map;
-import java.util.regex.Pattern;
-
-import java.time.DayOfWeek;
-import java.time.Month;
-import java.time.format.TextStyle;
-
 import com.google.common.base.Preconditions;
-import com.google.common.collect.ImmutableMap;
 
 public enum TimePeriod {
 
@@ -38,36 +29,29 @@ public enum TimePeriod {
 
     public final String description;
 
-    public final ImmutableMap<Pattern, String> replacements;
+    /**
+     * Lower case three letter names of the values beginning with
+     * value 1, or an empty array if the values have no names.
+     */
+    private final String[] names;
 
     TimePeriod(int min, int max, String description) {
         this.min = min;
         this.max = max;
         this.description = description;
-        this.replacements = buildReplacements(description);
+        this.names = buildNames(description);
     }
 
-    private static ImmutableMap<Pattern, String> buildReplacements(String description) {
-        ImmutableMap.Builder<Pattern, String> builder = ImmutableMap.builder();
+    private static String[] buildNames(String description) {
         switch (description) {
             case "dayOfWeek":
-                DayOfWeek[] days = DayOfWeek.values();
-                for (int i = 0; i < days.length; i++) {
-                    String needle = days[i].getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
-                    builder.put(Pattern.compile(Pattern.quote(needle), Pattern.CASE_INSENSITIVE),
-                                Integer.toString(i + 1));
-                }
-                break;
+                return new String[] {"mon", "tue", "wed", "thu", "fri", "sat", "sun"};
             case "month":
-                Month[] months = Month.values();
-                for (int i = 0; i < months.length; i++) {
-                    String needle = months[i].getDisplayName(TextStyle.SHORT, Locale.ENGLISH);
-                    builder.put(Pattern.compile(Pattern.quote(needle), Pattern.CASE_INSENSITIVE),
-                                Integer.toString(i + 1));
-                }
-                break;
+                return new String[] {"jan", "feb", "mar", "apr", "may", "jun",
+                                     "jul", "aug", "sep", "oct", "nov", "dec"};
+            default:
+                return new String[0];
         }
-        return builder.build();
     }
 
     public Interval interval() {
@@ -102,10 +86,23 @@ public enum TimePeriod {
         }
     }
 
-    public String replaceConstants(String input) {
-        for (Map.Entry<Pattern,String> replacement : replacements.entrySet()) {
-            input = replacement.getKey().matcher(input).replaceAll(replacement.getValue());
+    /**
+     * Returns the value of the name in the range [start, end) of the input,
+     * or -1 if the range is not a name. Names are case insensitive.
+     * Sunday is returned as 7 to match the numeric day of week input.
+     */
+    public int lookupName(CharSequence input, int start, int end) {
+        if (end - start != 3) {
+            return -1;
+        }
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if ((Character.toLowerCase(input.charAt(start)) == name.charAt(0)) &&
+                (Character.toLowerCase(input.charAt(start + 1)) == name.charAt(1)) &&
+                (Character.toLowerCase(input.charAt(start + 2)) == name.charAt(2))) {
+                return i + 1;
+            }
         }
-        return input;
+        return -1;
     }
 }
@@ -0,0 +1,292 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus.internal;
+
+import java.util.function.Consumer;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * Hierarchical timing wheel. Time is divided into ticks. The first
+ * wheel has 60 slots of one tick, the second wheel has 60 slots of
+ * 60 ticks, and the third wheel has 24 slots of 3600 ticks. With a
+ * one second tick these are the minute, hour and day wheels.
+ * Entries further in the future than the current day are kept in
+ * an overflow list that is redistributed once per day. When a slot
+ * of an outer wheel is reached its entries cascade into the inner
+ * wheels. Insertion and removal are O(1).
+ *
+ * Deadlines are kept with full precision. Entries that reach the
+ * current tick are moved to a due list and expire once the time
+ * passes their deadline.
+ *
+ * This class is not thread safe. It is intended to be confined
+ * to a single timer thread.
+ */
+public final class TimingWheel<T> {
+
+    private static final int[] SLOTS = {60, 60, 24};
+
+    /**
+     * Number of ticks in one slot of each wheel. The last
+     * element is the number of ticks spanned by the outer wheel.
+     */
+    private static final long[] SPANS = {1, 60, 3600, 86400};
+
+    private final long tickNanos;
+
+    private final Bucket<T>[][] wheels;
+
+    private final Bucket<T> overflow = new Bucket<>();
+
+    private final Bucket<T> due = new Bucket<>();
+
+    private long tick;
+
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimingWheel(long tickNanos, long now) {
+        Preconditions.checkArgument(tickNanos > 0, "Expected tickNanos > 0, but %s <= 0", tickNanos);
+        this.tickNanos = tickNanos;
+        this.wheels = new Bucket[SLOTS.length][];
+        for (int level = 0; level < SLOTS.length; level++) {
+            wheels[level] = new Bucket[SLOTS[level]];
+            for (int slot = 0; slot < SLOTS[level]; slot++) {
+                wheels[level][slot] = new Bucket<>();
+            }
+        }
+        this.tick = Math.floorDiv(now, tickNanos);
+    }
+
+    public static final class Entry<T> {
+
+        private final T value;
+
+        private final long deadline;
+
+        private Bucket<T> bucket;
+
+        private Entry<T> prev;
+
+        private Entry<T> next;
+
+        Entry(T value, long deadline) {
+            this.value = value;
+            this.deadline = deadline;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    /**
+     * Inserts a value that expires at the deadline. The deadline is in
+     * the same time units as the arguments to {@link #advance(long)}.
+     */
+    public Entry<T> add(T value, long deadline) {
+        Entry<T> entry = new Entry<>(value, deadline);
+        place(entry);
+        size++;
+        return entry;
+    }
+
+    /**
+     * Removes the entry. Returns false if the entry
+     * has already expired or been removed.
+     */
+    public boolean remove(Entry<T> entry) {
+        if (entry.bucket == null) {
+            return false;
+        }
+        entry.bucket.unlink(entry);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the current tick to the tick of the given time.
+     * When the wheel is empty the current tick is moved without
+     * visiting the intermediate ticks.
+     */
+    public void advance(long now) {
+        long target = Math.floorDiv(now, tickNanos);
+        if (size == 0) {
+            tick = Math.max(tick, target);
+            return;
+        }
+        while (tick < target) {
+            tick++;
+            for (int level = SLOTS.length; level > 0; level--) {
+                if (Math.floorMod(tick, SPANS[level]) == 0) {
+                    cascade((level == SLOTS.length) ? overflow : wheels[level][slot(tick, level)]);
+                }
+            }
+            cascade(wheels[0][slot(tick, 0)]);
+        }
+    }
+
+    /**
+     * Advances to the given time and passes the value of each expired
+     * entry to the action. Returns the time at which the next entry
+     * may expire, or {@code Long.MAX_VALUE} if the wheel is empty.
+     * The time is never later than the earliest deadline. It is the
+     * earliest deadline if that entry is due in the current tick, and
+     * otherwise the start of the earliest occupied slot.
+     */
+    public long expire(long now, Consumer<? super T> action) {
+        advance(now);
+        long next = Long.MAX_VALUE;
+        Entry<T> entry = due.head;
+        while (entry != null) {
+            Entry<T> following = entry.next;
+            if (entry.deadline <= now) {
+                due.unlink(entry);
+                size--;
+                action.accept(entry.value);
+            } else {
+                next = Math.min(next, entry.deadline);
+            }
+            entry = following;
+        }
+        if (size > due.count) {
+            next = Math.min(next, nextOccupiedTick() * tickNanos);
+        }
+        return next;
+    }
+
+    /**
+     * Returns the first tick at which an entry of the wheels or the
+     * overflow list moves to an inner wheel or to the due list.
+     * Entries of an inner wheel are due before the entries of any
+     * outer wheel, so the lowest occupied wheel is searched.
+     */
+    private long nextOccupiedTick() {
+        for (int level = 0; level < SLOTS.length; level++) {
+            long spanStart = Math.floorDiv(tick, SPANS[level + 1]) * SPANS[level + 1];
+            for (int slot = slot(tick, level) + 1; slot < SLOTS[level]; slot++) {
+                if (wheels[level][slot].head != null) {
+                    return spanStart + slot * SPANS[level];
+                }
+            }
+        }
+        return (Math.floorDiv(tick, SPANS[SLOTS.length]) + 1) * SPANS[SLOTS.length];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Passes every value in the wheel to the action and empties the wheel.
+     */
+    public void clear(Consumer<? super T> action) {
+        for (Bucket<T>[] wheel : wheels) {
+            for (Bucket<T> bucket : wheel) {
+                bucket.drain(action);
+            }
+        }
+        overflow.drain(action);
+        due.drain(action);
+        size = 0;
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) Math.floorMod(Math.floorDiv(tick, SPANS[level]), (long) SLOTS[level]);
+    }
+
+    private void place(Entry<T> entry) {
+        long target = Math.floorDiv(entry.deadline, tickNanos);
+        if (target <= tick) {
+            due.link(entry);
+            return;
+        }
+        for (int level = 0; level < SLOTS.length; level++) {
+            if (Math.floorDiv(target, SPANS[level + 1]) == Math.floorDiv(tick, SPANS[level + 1])) {
+                wheels[level][slot(target, level)].link(entry);
+                return;
+            }
+        }
+        overflow.link(entry);
+    }
+
+    private void cascade(Bucket<T> bucket) {
+        Entry<T> entry = bucket.head;
+        bucket.head = null;
+        bucket.count = 0;
+        while (entry != null) {
+            Entry<T> following = entry.next;
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+            place(entry);
+            entry = following;
+        }
+    }
+
+    /**
+     * Doubly linked list of entries.
+     */
+    private static final class Bucket<T> {
+
+        private Entry<T> head;
+
+        private int count;
+
+        void link(Entry<T> entry) {
+            entry.bucket = this;
+            entry.prev = null;
+            entry.next = head;
+            if (head != null) {
+                head.prev = entry;
+            }
+            head = entry;
+            count++;
+        }
+
+        void unlink(Entry<T> entry) {
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                head = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+            entry.bucket = null;
+            count--;
+        }
+
+        void drain(Consumer<? super T> action) {
+            Entry<T> entry = head;
+            head = null;
+            count = 0;
+            while (entry != null) {
+                Entry<T> following = entry.next;
+                entry.prev = null;
+                entry.next = null;
+                entry.bucket = null;
+                action.accept(entry.value);
+                entry = following;
+            }
+        }
+    }
+}
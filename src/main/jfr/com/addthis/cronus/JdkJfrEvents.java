@@ -0,0 +1,137 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.annotation.Nonnull;
+
+import java.util.concurrent.TimeUnit;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+import jdk.jfr.Timestamp;
+
+/**
+ * {@link JfrEvents} implemented with the {@code jdk.jfr} API. This source
+ * tree is compiled separately from {@code src/main/java} and needs a JDK
+ * that ships flight recorder. Only load this class after
+ * {@link JfrSupport#isSupported()} returns true.
+ */
+final class JdkJfrEvents extends JfrEvents {
+
+    private static final EventType FIRING_TYPE = EventType.getEventType(FiringEvent.class);
+
+    @Nonnull
+    private final Runnable periodicHook;
+
+    JdkJfrEvents(CronScheduler scheduler) {
+        this.periodicHook = () -> {
+            SchedulerEvent event = new SchedulerEvent();
+            event.jobs = scheduler.getJobCount();
+            event.activeRuns = scheduler.getActiveRuns();
+            event.timerQueueDepth = CronScheduler.queueDepth(scheduler.getExecutor());
+            event.executionQueueDepth = scheduler.getExecutionQueueDepth();
+            event.commit();
+        };
+    }
+
+    @Override
+    void start() {
+        FlightRecorder.addPeriodicEvent(SchedulerEvent.class, periodicHook);
+    }
+
+    @Override
+    void stop() {
+        FlightRecorder.removePeriodicEvent(periodicHook);
+    }
+
+    @Override
+    boolean isFiringEnabled() {
+        return FIRING_TYPE.isEnabled();
+    }
+
+    @Override
+    void firing(String pattern, long scheduledEpochMilli, long actualEpochMilli,
+                long durationNanos, String outcome) {
+        FiringEvent event = new FiringEvent();
+        event.pattern = pattern;
+        event.scheduledTime = scheduledEpochMilli;
+        event.actualTime = actualEpochMilli;
+        event.lag = TimeUnit.MILLISECONDS.toNanos(actualEpochMilli - scheduledEpochMilli);
+        event.runDuration = durationNanos;
+        event.outcome = outcome;
+        event.commit();
+    }
+
+    @Name("com.addthis.cronus.Firing")
+    @Label("Cron Firing")
+    @Category("Cron")
+    @Description("A run of a cron job or a firing that did not run")
+    @StackTrace(false)
+    static class FiringEvent extends Event {
+
+        @Label("Pattern")
+        String pattern;
+
+        @Label("Scheduled Time")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        long scheduledTime;
+
+        @Label("Actual Time")
+        @Timestamp(Timestamp.MILLISECONDS_SINCE_EPOCH)
+        long actualTime;
+
+        @Label("Lag")
+        @Timespan(Timespan.NANOSECONDS)
+        long lag;
+
+        @Label("Run Duration")
+        @Timespan(Timespan.NANOSECONDS)
+        long runDuration;
+
+        @Label("Outcome")
+        @Description("One of completed, failed, skipped or rejected")
+        String outcome;
+    }
+
+    @Name("com.addthis.cronus.Scheduler")
+    @Label("Cron Scheduler")
+    @Category("Cron")
+    @Description("Statistics of a cron scheduler")
+    @Period("1 s")
+    @StackTrace(false)
+    static class SchedulerEvent extends Event {
+
+        @Label("Jobs")
+        int jobs;
+
+        @Label("Active Runs")
+        int activeRuns;
+
+        @Label("Timer Queue Depth")
+        @Description("Number of tasks held by the scheduled executor or -1 if unknown")
+        int timerQueueDepth;
+
+        @Label("Execution Queue Depth")
+        @Description("Number of runs waiting for the execution executor or -1 if unknown")
+        int executionQueueDepth;
+    }
+}
@@ -19,6 +19,7 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class CronParserTest {
 
@@ -61,6 +62,47 @@ public class CronParserTest {
         testInvalidPattern("* * * * 8", 8);
     }
 
+    private void testErrorMessage(String pattern, String message, int position) {
+        try {
+            CronParser.parse(pattern);
+            fail("Expected exception was not thrown");
+        } catch (ParseException ex) {
+            assertEquals(message, ex.getMessage());
+            assertEquals(position, ex.getErrorOffset());
+        }
+    }
+
+    @Test
+    public void errorMessages() {
+        testErrorMessage(" \t", "Expected 5 columns. Found 0 columns", 0);
+        testErrorMessage("* * * * * *", "Expected 5 columns. Found 6 columns", 0);
+        testErrorMessage("* * ** * *", "wildcard syntax error in dayOfMonth column", 4);
+        testErrorMessage("* * * * foo", "Unrecognized value in dayOfWeek column", 8);
+        testErrorMessage("* jan * * *", "Unrecognized value in hour column", 2);
+        testErrorMessage("* 1-2/ * * *", "Unrecognized value in hour column", 2);
+        testErrorMessage("* 1, * ,2 *", "Unrecognized value in month column", 7);
+        testErrorMessage("* * * * 3-1", "Expected low <= high, but 3 > 1 in dayOfWeek column", 8);
+        testErrorMessage("*  *  *  0  *", "Expected min <= index, but 1 > 0 in month column", 9);
+        testErrorMessage("99999999999 * * * *",
+                         "For input string: \"99999999999\" in minute column", 0);
+    }
+
+    @Test
+    public void parseNames() throws ParseException {
+        assertEquals(CronParser.parse("* * * 1-3 1-5"), CronParser.parse("* * * JAN-Mar MON-fri"));
+        assertEquals(CronParser.parse("* * * * 0"), CronParser.parse("* * * * sun"));
+        assertEquals(CronParser.parse("* * * * 1-6"), CronParser.parse("* * * * mon-sun"));
+        assertEquals(CronParser.parse("* * * 12 *"), CronParser.parse("* * * dec *"));
+    }
+
+    @Test
+    public void parseWhitespaceAndCommas() throws ParseException {
+        CronPattern pattern = CronParser.parse(" \t1,2,, */15\n* *   * ");
+        assertEquals("1,2,, */15\n* *   *", pattern.source);
+        assertEquals("1-2 0,15 * * *", CronParser.print(pattern));
+        assertEquals("1,2 */15 * * mon", CronParser.normalize(" \t1,2 */15\n* *   MON "));
+    }
+
     @Test
     public void print() throws Exception {
         assertEquals("* * * * *", CronParser.print(CronParser.parse("* * * * *")));
@@ -0,0 +1,146 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CronPatternIndexTest {
+
+    private static String randomColumn(Random random, int max, boolean names) {
+        switch (random.nextInt(names ? 6 : 5)) {
+            case 0:
+            case 1:
+                return "*";
+            case 2:
+                return Integer.toString(1 + random.nextInt(max));
+            case 3:
+                return (1 + random.nextInt(max / 2)) + "-" + (max / 2 + random.nextInt(max / 2));
+            case 4:
+                return "*/" + (1 + random.nextInt(4));
+            default:
+                return "mon-fri";
+        }
+    }
+
+    private static CronPattern randomPattern(Random random) throws Exception {
+        return CronPattern.build(randomColumn(random, 59, false) + " " +
+                                 randomColumn(random, 23, false) + " " +
+                                 randomColumn(random, 31, false) + " " +
+                                 randomColumn(random, 12, false) + " " +
+                                 randomColumn(random, 6, true));
+    }
+
+    private static List<Integer> bruteForce(CronPatternIndex index, List<Integer> ids, LocalDateTime time) {
+        List<Integer> expected = new ArrayList<>();
+        for (int id : ids) {
+            if (index.get(id).matches(time)) {
+                expected.add(id);
+            }
+        }
+        return expected;
+    }
+
+    @Test
+    public void forEachMatch() throws Exception {
+        Random random = new Random(3);
+        CronPatternIndex index = new CronPatternIndex();
+        List<Integer> ids = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            ids.add(index.add(randomPattern(random)));
+        }
+        for (int i = 0; i < 200; i++) {
+            ids.remove(Integer.valueOf(random.nextInt(500)));
+        }
+        for (int id = 0; id < 500; id++) {
+            if (!ids.contains(id)) {
+                assertTrue(index.remove(id));
+                assertFalse(index.remove(id));
+                assertNull(index.get(id));
+            }
+        }
+        assertEquals(ids.size(), index.size());
+        for (int i = 0; i < 2000; i++) {
+            LocalDateTime time = LocalDateTime.of(2000 + random.nextInt(40), 1 + random.nextInt(12),
+                                                  1 + random.nextInt(28), random.nextInt(24), random.nextInt(60));
+            List<Integer> expected = bruteForce(index, ids, time);
+            List<Integer> actual = new ArrayList<>();
+            index.forEachMatch(time, actual::add);
+            assertEquals(expected, actual);
+            actual.clear();
+            index.forEachMatch(time.toEpochSecond(ZoneOffset.UTC) / 60, actual::add);
+            assertEquals(expected, actual);
+            assertEquals(expected.size(), index.matches(time).size());
+        }
+    }
+
+    @Test
+    public void nextMatch() throws Exception {
+        Random random = new Random(9);
+        for (int i = 0; i < 20; i++) {
+            CronPatternIndex index = new CronPatternIndex();
+            List<CronPattern> patterns = new ArrayList<>();
+            for (int j = 0; j < 1 + random.nextInt(4); j++) {
+                CronPattern pattern = CronPattern.build(random.nextInt(60) + " " + random.nextInt(24) + " " +
+                                                        randomColumn(random, 31, false) + " " +
+                                                        randomColumn(random, 12, false) + " " +
+                                                        randomColumn(random, 6, true));
+                patterns.add(pattern);
+                index.add(pattern);
+            }
+            long from = 23_000_000 + random.nextInt(2_000_000);
+            long limit = from + 60 * 24 * 60;
+            long expected = CronPattern.NO_MATCH;
+            for (CronPattern pattern : patterns) {
+                long next = pattern.nextEpochMinute(from, true);
+                if ((next != CronPattern.NO_MATCH) && (next < limit) &&
+                    ((expected == CronPattern.NO_MATCH) || (next < expected))) {
+                    expected = next;
+                }
+            }
+            assertEquals(expected, index.nextMatch(from, limit));
+        }
+        assertEquals(CronPattern.NO_MATCH, new CronPatternIndex().nextMatch(0, 1_000_000));
+    }
+
+    @Test
+    public void reuseIds() throws Exception {
+        CronPatternIndex index = new CronPatternIndex();
+        CronPattern first = CronPattern.build("0 0 * * *");
+        CronPattern second = CronPattern.build("0 0 1 * mon");
+        int id = index.add(first);
+        assertEquals(1, index.matches(LocalDateTime.of(2015, 6, 2, 0, 0)).size());
+        assertTrue(index.remove(id));
+        assertEquals(0, index.matches(LocalDateTime.of(2015, 6, 2, 0, 0)).size());
+        assertEquals(id, index.add(second));
+        assertSame(second, index.get(id));
+        // 2015-06-01 is a Monday and 2015-06-08 is a Monday
+        assertEquals(1, index.matches(LocalDateTime.of(2015, 6, 1, 0, 0)).size());
+        assertEquals(1, index.matches(LocalDateTime.of(2015, 6, 8, 0, 0)).size());
+        assertEquals(1, index.matches(LocalDateTime.of(2015, 7, 1, 0, 0)).size());
+        assertEquals(0, index.matches(LocalDateTime.of(2015, 6, 2, 0, 0)).size());
+    }
+}
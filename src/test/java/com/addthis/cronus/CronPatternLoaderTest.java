@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import com.google.common.collect.ImmutableList;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CronPatternLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final String INPUT = "# comment\n" +
+                                        "* * * * *\n" +
+                                        "\n" +
+                                        "0 12 * * mon\n" +
+                                        "* * * * foo\n" +
+                                        "0  12 * * MON\n" +
+                                        "   \n" +
+                                        "* * * * foo\n" +
+                                        "* *\n";
+
+    private static void checkResult(CronPatternLoader.Result result) throws Exception {
+        assertEquals(ImmutableList.of("* * * * *", "0 12 * * mon"),
+                     ImmutableList.copyOf(result.getPatterns().keySet()));
+        CronPattern noon = CronPattern.build("0 12 * * 1");
+        assertEquals(noon, result.getPatterns().get("0 12 * * mon"));
+        assertEquals(ImmutableList.of(2, 4, 6), ImmutableList.copyOf(result.getPatternsByLine().keySet()));
+        assertEquals(noon, result.getPatternsByLine().get(6));
+        assertEquals("0  12 * * MON", result.getPatternsByLine().get(6).source);
+        assertSame(result.getPatternsByLine().get(4).intern(), result.getPatternsByLine().get(6).intern());
+        assertEquals(noon, result.getPattern("0  12 * * MON"));
+        assertEquals(noon, result.getPattern(" 0 12 * * Mon "));
+        assertNull(result.getPattern("* * * * foo"));
+        assertTrue(result.hasFailures());
+        List<CronPatternLoader.Failure> failures = result.getFailures();
+        assertEquals(3, failures.size());
+        assertEquals(5, failures.get(0).getLineNumber());
+        assertEquals("* * * * foo", failures.get(0).getExpression());
+        assertEquals(8, failures.get(0).getException().getErrorOffset());
+        assertEquals(8, failures.get(1).getLineNumber());
+        assertEquals(9, failures.get(2).getLineNumber());
+        assertEquals("Expected 5 columns. Found 2 columns", failures.get(2).getException().getMessage());
+    }
+
+    @Test
+    public void loadStream() throws Exception {
+        checkResult(new CronPatternLoader().load(Arrays.stream(INPUT.split("\n"))));
+    }
+
+    @Test
+    public void loadReader() throws Exception {
+        checkResult(new CronPatternLoader(new ForkJoinPool(2)).load(new StringReader(INPUT)));
+    }
+
+    @Test
+    public void loadPath() throws Exception {
+        Path path = folder.newFile("patterns.txt").toPath();
+        Files.write(path, INPUT.getBytes(StandardCharsets.UTF_8));
+        checkResult(new CronPatternLoader().load(path));
+    }
+
+    @Test
+    public void loadMany() throws Exception {
+        List<String> lines = new ArrayList<>();
+        IntStream.range(0, 10_000).forEach(i -> lines.add((i % 60) + " " + (i % 24) + " * * *"));
+        CronPatternLoader.Result result = new CronPatternLoader().load(lines.stream());
+        assertFalse(result.hasFailures());
+        assertEquals(120, result.getPatterns().size());
+        for (String line : lines) {
+            assertSame(CronPattern.build(line), result.getPatterns().get(line));
+        }
+    }
+}
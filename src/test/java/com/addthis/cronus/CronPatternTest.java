@@ -13,6 +13,13 @@
  */
 package com.addthis.cronus;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
@@ -24,7 +31,10 @@ import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class CronPatternTest {
@@ -129,6 +139,48 @@ public class CronPatternTest {
         assertEquals(createDateTime(LocalDateTime.of(2000, 2, 1, 23, 50)), pattern.next(dateTime, false));
     }
 
+    @Test
+    public void nextPreviousAcrossFallBack() throws Exception {
+        ZoneOffset edt = ZoneOffset.ofHours(-4);
+        ZoneOffset est = ZoneOffset.ofHours(-5);
+        CronPattern pattern = CronPattern.build("30 * * * *");
+        ZonedDateTime first = createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 30), edt);
+        ZonedDateTime second = createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 30), est);
+        assertEquals(second, pattern.next(first, false));
+        assertEquals(first, pattern.previous(second, false));
+        assertEquals(second.toInstant().toEpochMilli(),
+                     pattern.nextEpochMilli(first.toInstant().toEpochMilli(), first.getZone(), false));
+        pattern = CronPattern.build("0,30 * * * *");
+        assertEquals(createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 0), est), pattern.next(first, false));
+        assertEquals(createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 30), edt),
+                     pattern.previous(createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 0), est), false));
+        // the seconds of the input are kept
+        assertEquals(second.plusSeconds(15), CronPattern.build("30 * * * *").next(first.plusSeconds(15), false));
+        pattern = CronPattern.build("* 1 * * *");
+        assertEquals(createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 0), est),
+                     pattern.next(createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 59), edt), false));
+        // previous never moves forward into the end of a spring forward gap
+        pattern = CronPattern.build("30 * * * *");
+        assertEquals(createEasternTime(LocalDateTime.of(2015, 3, 8, 1, 30), est),
+                     pattern.previous(createEasternTime(LocalDateTime.of(2015, 3, 8, 3, 10), edt), false));
+    }
+
+    @Test
+    public void sparsePatterns() throws Exception {
+        CronPattern pattern = CronPattern.build("0 0 29 2 *");
+        LocalDateTime dateTime = LocalDateTime.of(2001, 3, 1, 0, 0);
+        assertEquals(LocalDateTime.of(2004, 2, 29, 0, 0), pattern.next(dateTime, true));
+        assertEquals(LocalDateTime.of(2000, 2, 29, 0, 0), pattern.previous(dateTime, true));
+        dateTime = LocalDateTime.of(2096, 3, 1, 0, 0);
+        assertEquals(LocalDateTime.of(2104, 2, 29, 0, 0), pattern.next(dateTime, true));
+        pattern = CronPattern.build("0 0 31 * 1");
+        dateTime = LocalDateTime.of(2015, 1, 1, 0, 0);
+        assertEquals(LocalDateTime.of(2015, 1, 5, 0, 0), pattern.next(dateTime, true));
+        pattern = CronPattern.build("0 0 13 * *").setAll(TimePeriod.DAYOFWEEK, false)
+                                                  .setIndex(TimePeriod.DAYOFWEEK, 5, true);
+        assertEquals(LocalDateTime.of(2015, 1, 2, 0, 0), pattern.next(dateTime, true));
+    }
+
     @Test
     public void nextDaylightSavings() throws Exception {
         ZonedDateTime dateTime;
@@ -293,4 +345,203 @@ public class CronPatternTest {
                      pattern.previous(inputDateTime, false));
     }
 
+    private static final String[] EPOCH_PATTERNS = {
+            "* * * * *", "0 0 * * *", "15,30 3 * * *", "*/7 */5 * * *", "59 23 31 12 *",
+            "0 0 29 2 *", "0 0 31 * 1", "30 2 * * *", "0 12 * 6-8 mon-fri", "0 0 1,15 * 5"
+    };
+
+    private static long toEpochMinute(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    private static long toEpochMilli(ZonedDateTime dateTime) {
+        return dateTime.toInstant().toEpochMilli();
+    }
+
+    @Test
+    public void epochMinute() throws Exception {
+        assertEquals(CronPattern.NO_MATCH, new CronPattern().nextEpochMinute(0, true));
+        assertEquals(CronPattern.NO_MATCH, new CronPattern().previousEpochMinute(0, true));
+        Random random = new Random(42);
+        for (String source : EPOCH_PATTERNS) {
+            CronPattern pattern = CronPattern.build(source);
+            for (int i = 0; i < 200; i++) {
+                LocalDateTime input = LocalDateTime.of(1900 + random.nextInt(300), 1 + random.nextInt(12),
+                                                       1 + random.nextInt(28), random.nextInt(24),
+                                                       random.nextInt(60));
+                boolean inclusive = random.nextBoolean();
+                long epochMinute = toEpochMinute(input);
+                assertEquals(source + " next " + input, toEpochMinute(pattern.next(input, inclusive)),
+                             pattern.nextEpochMinute(epochMinute, inclusive));
+                assertEquals(source + " previous " + input, toEpochMinute(pattern.previous(input, inclusive)),
+                             pattern.previousEpochMinute(epochMinute, inclusive));
+            }
+        }
+    }
+
+    @Test
+    public void epochMilliOffset() throws Exception {
+        CronPattern pattern = CronPattern.build("30 1 * * *");
+        ZoneOffset offset = ZoneOffset.ofHours(-5);
+        ZonedDateTime input = ZonedDateTime.of(LocalDateTime.of(2015, 11, 1, 1, 29, 30), offset);
+        ZonedDateTime expected = ZonedDateTime.of(LocalDateTime.of(2015, 11, 1, 1, 30), offset);
+        assertEquals(toEpochMilli(expected), pattern.nextEpochMilli(toEpochMilli(input), offset, true));
+        assertEquals(toEpochMilli(expected), pattern.nextEpochMilli(toEpochMilli(input), offset, false));
+        assertEquals(toEpochMilli(expected), pattern.nextEpochMilli(toEpochMilli(expected), offset, true));
+        assertEquals(toEpochMilli(expected.plusDays(1)),
+                     pattern.nextEpochMilli(toEpochMilli(expected), offset, false));
+        assertEquals(toEpochMilli(expected.minusDays(1)),
+                     pattern.previousEpochMilli(toEpochMilli(input), offset, true));
+        assertEquals(toEpochMilli(expected), pattern.previousEpochMilli(toEpochMilli(expected), offset, true));
+        assertEquals(toEpochMilli(expected.minusDays(1)),
+                     pattern.previousEpochMilli(toEpochMilli(expected), offset, false));
+        assertEquals(toEpochMilli(expected), pattern.previousEpochMilli(toEpochMilli(expected) + 1, offset, false));
+        assertEquals(toEpochMilli(expected),
+                     pattern.nextEpochMilli(toEpochMilli(input), ZoneId.of("UTC-05:00"), true));
+    }
+
+    private static long nextEastern(CronPattern pattern, ZonedDateTime input, boolean inclusive) {
+        return pattern.nextEpochMilli(toEpochMilli(input), input.getZone(), inclusive);
+    }
+
+    private static long previousEastern(CronPattern pattern, ZonedDateTime input, boolean inclusive) {
+        return pattern.previousEpochMilli(toEpochMilli(input), input.getZone(), inclusive);
+    }
+
+    @Test
+    public void epochMilliDaylightSavings() throws Exception {
+        // fall back 2:00 am to 1:00 am Sunday, November 1, 2015
+        CronPattern pattern = CronPattern.build("30 1 * * *");
+        ZonedDateTime firstInstance = createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 30), ZoneOffset.ofHours(-4));
+        ZonedDateTime secondInstance = createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 30), ZoneOffset.ofHours(-5));
+        ZonedDateTime nextDay = createEasternTime(LocalDateTime.of(2015, 11, 2, 1, 30));
+        assertEquals(toEpochMilli(firstInstance), nextEastern(pattern,
+                createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 20), ZoneOffset.ofHours(-4)), true));
+        assertEquals(toEpochMilli(nextDay), nextEastern(pattern,
+                createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 20), ZoneOffset.ofHours(-5)), true));
+        assertEquals(toEpochMilli(firstInstance), nextEastern(pattern, firstInstance, true));
+        assertEquals(toEpochMilli(nextDay), nextEastern(pattern, firstInstance, false));
+        assertEquals(toEpochMilli(nextDay), nextEastern(pattern, secondInstance, true));
+        assertEquals(toEpochMilli(firstInstance), previousEastern(pattern, secondInstance, true));
+        assertEquals(toEpochMilli(firstInstance), previousEastern(pattern, secondInstance, false));
+        assertEquals(toEpochMilli(firstInstance), previousEastern(pattern,
+                createEasternTime(LocalDateTime.of(2015, 11, 1, 1, 20), ZoneOffset.ofHours(-5)), true));
+        assertEquals(toEpochMilli(firstInstance.minusDays(1)), previousEastern(pattern, firstInstance, false));
+        // patterns that do not run at a specific hour fire on both instances
+        pattern = CronPattern.build("30 * * * *");
+        assertEquals(toEpochMilli(secondInstance), nextEastern(pattern, firstInstance, false));
+        assertEquals(toEpochMilli(firstInstance), previousEastern(pattern, secondInstance, false));
+        // spring forward 1:59 am to 3:00 am Sunday, March 8, 2015
+        pattern = CronPattern.build("30 2 * * *");
+        ZonedDateTime gapEnd = createEasternTime(LocalDateTime.of(2015, 3, 8, 3, 0));
+        assertEquals(toEpochMilli(gapEnd), nextEastern(pattern,
+                createEasternTime(LocalDateTime.of(2015, 3, 8, 0, 0)), true));
+        assertEquals(toEpochMilli(gapEnd), nextEastern(pattern,
+                createEasternTime(LocalDateTime.of(2015, 3, 8, 1, 59)), false));
+        assertEquals(toEpochMilli(gapEnd), previousEastern(pattern,
+                createEasternTime(LocalDateTime.of(2015, 3, 8, 4, 0)), true));
+        assertEquals(toEpochMilli(gapEnd), previousEastern(pattern, gapEnd, true));
+        assertEquals(toEpochMilli(createEasternTime(LocalDateTime.of(2015, 3, 7, 2, 30))),
+                     previousEastern(pattern, gapEnd, false));
+        assertEquals(toEpochMilli(createEasternTime(LocalDateTime.of(2015, 3, 9, 2, 30))),
+                     nextEastern(pattern, gapEnd, false));
+    }
+
+    @Test
+    public void epochMilliMatchesZonedDateTime() throws Exception {
+        ZoneId zone = ZoneId.of("America/New_York");
+        Random random = new Random(7);
+        for (String source : EPOCH_PATTERNS) {
+            CronPattern pattern = CronPattern.build(source);
+            for (int i = 0; i < 200; i++) {
+                ZonedDateTime input = ZonedDateTime.ofInstant(
+                        Instant.ofEpochSecond(60L * (23_000_000 + random.nextInt(2_000_000))), zone);
+                boolean inclusive = random.nextBoolean();
+                assertEquals(source + " next " + input, toEpochMilli(pattern.next(input, inclusive)),
+                             nextEastern(pattern, input, inclusive));
+            }
+        }
+    }
+
+    @Test
+    public void fireTimes() throws Exception {
+        ZoneId zone = ZoneId.of("America/New_York");
+        ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2014, 12, 20, 0, 0), zone);
+        ZonedDateTime end = ZonedDateTime.of(LocalDateTime.of(2016, 1, 10, 0, 0), zone);
+        for (String source : new String[] {"30 1 * * *", "30 2 * * *", "0,30 * * * *", "0 0 29 2 *", "*/20 * * * *"}) {
+            CronPattern pattern = CronPattern.build(source);
+            List<ZonedDateTime> expected = new ArrayList<>();
+            for (long next = pattern.nextEpochMilli(toEpochMilli(start), zone, true);
+                 next < toEpochMilli(end); next = pattern.nextEpochMilli(next, zone, false)) {
+                expected.add(ZonedDateTime.ofInstant(Instant.ofEpochMilli(next), zone));
+            }
+            List<ZonedDateTime> actual = new ArrayList<>();
+            Iterator<ZonedDateTime> iterator = pattern.fireTimeIterator(start, end);
+            iterator.forEachRemaining(actual::add);
+            assertEquals(source, expected, actual);
+            assertEquals(source, expected, pattern.fireTimes(start, end).parallel().collect(Collectors.toList()));
+        }
+        CronPattern pattern = CronPattern.build("0 0 * * *");
+        assertEquals(0, pattern.fireTimes(end, start).count());
+        assertEquals(0, new CronPattern().fireTimes(start, end).count());
+        assertEquals(1, pattern.fireTimes(start, start.plusMinutes(1)).count());
+        assertEquals(0, pattern.fireTimes(start, start).count());
+    }
+
+    @Test
+    public void countFirings() throws Exception {
+        String[] sources = {"* 1-2 * * *", "30 1 * * *", "30 2 * * *", "0,30 * * * *", "0 0 29 2 *",
+                            "*/20 1-3 * * *", "0 2 * * *", "15 1,2 * 3,11 0"};
+        for (String zoneId : new String[] {"America/New_York", "UTC", "Australia/Lord_Howe"}) {
+            ZoneId zone = ZoneId.of(zoneId);
+            Random random = new Random(11);
+            for (String source : sources) {
+                CronPattern pattern = CronPattern.build(source);
+                for (int i = 0; i < 8; i++) {
+                    ZonedDateTime start = ZonedDateTime.of(LocalDateTime.of(2014, 1, 1, 0, 0), zone)
+                                                       .plusMinutes(random.nextInt(60 * 24 * 365))
+                                                       .plusSeconds(random.nextInt(60));
+                    ZonedDateTime end = start.plusMinutes(random.nextInt(60 * 24 * 400));
+                    assertEquals(source + " in " + zoneId + " from " + start + " to " + end,
+                                 pattern.fireTimes(start, end).count(),
+                                 pattern.countFirings(start.toInstant(), end.toInstant(), zone));
+                }
+            }
+        }
+        CronPattern pattern = CronPattern.build("* * * * *");
+        Instant start = Instant.parse("2000-01-01T00:00:00Z");
+        assertEquals(1440L * 366, pattern.countFirings(start, Instant.parse("2001-01-01T00:00:00Z"),
+                                                       ZoneOffset.UTC));
+        assertEquals(1440L * 146097, pattern.countFirings(start, Instant.parse("2400-01-01T00:00:00Z"),
+                                                          ZoneOffset.UTC));
+        assertEquals(0, pattern.countFirings(start, start, ZoneOffset.UTC));
+        assertEquals(0, new CronPattern().countFirings(start, start.plusSeconds(86400), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void equalsAndIntern() throws Exception {
+        CronPattern pattern = CronPattern.build("0 0 * * 7");
+        assertSame(pattern, CronPattern.build("0 0 * * 7"));
+        assertSame(pattern, CronPattern.build(" 0 0 * * 7 "));
+        // other spellings keep their source and share the canonical instance
+        for (String source : new String[] {"0  0\t* *   7", "0 0 * * SUN", "0 0 1-31 1-12 0"}) {
+            CronPattern other = CronPattern.build(source);
+            assertEquals(source, other.source);
+            assertEquals(pattern, other);
+            assertSame(pattern, other.intern());
+            assertSame(pattern.days, other.days);
+        }
+        assertEquals("0 0 * * 7", pattern.source);
+        CronPattern copy = new CronPattern().setIndex(TimePeriod.MINUTE, 0, true)
+                                            .setIndex(TimePeriod.HOUR, 0, true)
+                                            .setAll(TimePeriod.DAYOFMONTH, true)
+                                            .setAll(TimePeriod.MONTH, true)
+                                            .setIndex(TimePeriod.DAYOFWEEK, 0, true);
+        assertNotSame(pattern, copy);
+        assertEquals(pattern, copy);
+        assertEquals(pattern.hashCode(), copy.hashCode());
+        assertSame(pattern, copy.intern());
+        assertNotEquals(pattern, CronPattern.build("0 0 * * 1"));
+        assertNotEquals(pattern, CronPattern.build("0 1 * * 0"));
+    }
 }
@@ -0,0 +1,619 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+
+import com.google.common.collect.Maps;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CronSchedulerTest {
+
+    private static final Instant START = Instant.parse("2020-01-01T00:00:30Z");
+
+    private VirtualTimeExecutor timer;
+
+    /**
+     * Clock read by the scheduler. Defaults to the clock of the timer.
+     */
+    private Clock clock;
+
+    private ExecutorService workers;
+
+    private CronScheduler scheduler;
+
+    private final List<Long> misfires = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setUp() {
+        timer = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        clock = timer.getClock();
+        workers = Executors.newCachedThreadPool();
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.stop();
+            scheduler.awaitTerminated();
+        }
+        workers.shutdownNow();
+    }
+
+    private void start(CronScheduler.Builder builder) {
+        builder.setClock(clock).setMisfireListener(
+                (future, scheduledTime, actualTime, missedFirings, policy) -> misfires.add(missedFirings));
+        scheduler = new CronScheduler(timer, workers, false, builder);
+        scheduler.start();
+        scheduler.awaitRunning();
+    }
+
+    private static class CountingJob implements Runnable {
+
+        final AtomicInteger runs = new AtomicInteger();
+
+        @Override
+        public void run() {
+            runs.incrementAndGet();
+        }
+    }
+
+    /**
+     * Job that blocks until released and counts its runs.
+     */
+    private static class BlockingJob implements Runnable {
+
+        final AtomicInteger started = new AtomicInteger();
+
+        final AtomicInteger completed = new AtomicInteger();
+
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void run() {
+            started.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            completed.incrementAndGet();
+        }
+    }
+
+    private static void awaitCount(AtomicInteger counter, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((counter.get() < expected) && (System.nanoTime() < deadline)) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, counter.get());
+    }
+
+    private BlockingJob fireOverlapping(OverlapPolicy policy, int firings, int expectedStarts,
+                                        int expectedRuns) throws Exception {
+        start(new CronScheduler.Builder(1));
+        BlockingJob job = new BlockingJob();
+        scheduler.schedule(CronPattern.build("* * * * *"), job,
+                           new JobOptions.Builder().setOverlapPolicy(policy).build());
+        for (int i = 0; i < firings; i++) {
+            assertTrue(timer.runNext());
+        }
+        awaitCount(job.started, expectedStarts);
+        job.release.countDown();
+        awaitCount(job.completed, expectedRuns);
+        // the scheduler always holds the next firing
+        assertEquals(1, timer.getQueueSize());
+        return job;
+    }
+
+    @Test
+    public void unlimited() throws Exception {
+        fireOverlapping(OverlapPolicy.unlimited(), 3, 3, 3);
+    }
+
+    @Test
+    public void skip() throws Exception {
+        fireOverlapping(OverlapPolicy.skip(), 3, 1, 1);
+    }
+
+    @Test
+    public void queueOne() throws Exception {
+        fireOverlapping(OverlapPolicy.queueOne(), 3, 1, 2);
+    }
+
+    @Test
+    public void allowConcurrent() throws Exception {
+        BlockingJob job = fireOverlapping(OverlapPolicy.allowConcurrent(2), 3, 2, 2);
+        // after the runs complete the next firing runs again
+        assertTrue(timer.runNext());
+        awaitCount(job.completed, 3);
+    }
+
+    private CountingJob misfire(MisfirePolicy policy, int expectedRuns) throws Exception {
+        start(new CronScheduler.Builder(1));
+        CountingJob job = new CountingJob();
+        scheduler.schedule(CronPattern.build("* * * * *"), job,
+                           new JobOptions.Builder().setMisfirePolicy(policy).build());
+        // scheduled at 00:00 and started at 00:05:30
+        timer.stall(Duration.ofMinutes(5));
+        assertTrue(timer.runNext());
+        awaitCount(job.runs, expectedRuns);
+        assertEquals(1, misfires.size());
+        assertEquals(5L, (long) misfires.get(0));
+        // the next firing is after the current time
+        assertTrue(timer.runNext());
+        assertEquals(Instant.parse("2020-01-01T00:06:00Z"), timer.now());
+        awaitCount(job.runs, expectedRuns + 1);
+        assertEquals(1, misfires.size());
+        return job;
+    }
+
+    @Test
+    public void misfireFireOnce() throws Exception {
+        misfire(MisfirePolicy.fireOnce(), 1);
+    }
+
+    @Test
+    public void misfireReplay() throws Exception {
+        misfire(MisfirePolicy.replay(2), 3);
+    }
+
+    @Test
+    public void misfireReplayAll() throws Exception {
+        misfire(MisfirePolicy.replay(100), 6);
+    }
+
+    @Test
+    public void misfireSkip() throws Exception {
+        misfire(MisfirePolicy.skip(), 0);
+    }
+
+    @Test
+    public void lateWithinThreshold() throws Exception {
+        start(new CronScheduler.Builder(1).setMisfireThreshold(Duration.ofMinutes(5)));
+        CountingJob job = new CountingJob();
+        scheduler.schedule(CronPattern.build("* * * * *"), job, JobOptions.DEFAULT);
+        timer.stall(Duration.ofMinutes(3));
+        // the firings from 00:00 to 00:03 all run
+        for (int i = 0; i < 4; i++) {
+            assertTrue(timer.runNext());
+        }
+        awaitCount(job.runs, 4);
+        assertEquals(Instant.parse("2020-01-01T00:03:30Z"), timer.now());
+        assertTrue(timer.runNext());
+        assertEquals(Instant.parse("2020-01-01T00:04:00Z"), timer.now());
+        awaitCount(job.runs, 5);
+        assertTrue(misfires.isEmpty());
+    }
+
+    @Test
+    public void clockMovedBackward() throws Exception {
+        // the scheduler reads a wall clock that falls behind the timer
+        VirtualTimeExecutor wall = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        clock = wall.getClock();
+        start(new CronScheduler.Builder(1));
+        CountingJob job = new CountingJob();
+        scheduler.schedule(CronPattern.build("* * * * *"), job, JobOptions.DEFAULT);
+        assertTrue(timer.runNext());
+        awaitCount(job.runs, 1);
+        // the firing at 00:01 starts while the wall clock reads 00:00:30
+        assertTrue(timer.runNext());
+        assertEquals(1, timer.getQueueSize());
+        assertEquals(1, job.runs.get());
+        wall.advanceTo(Instant.parse("2020-01-01T00:01:00Z"));
+        assertTrue(timer.runNext());
+        awaitCount(job.runs, 2);
+        assertTrue(misfires.isEmpty());
+    }
+
+    @Test
+    public void minuteTickMisfire() throws Exception {
+        start(new CronScheduler.Builder(1).setDispatch(CronScheduler.Dispatch.MINUTE_TICK));
+        CountingJob late = new CountingJob();
+        scheduler.schedule(CronPattern.build("* * * * *"), late,
+                           new JobOptions.Builder().setMisfirePolicy(MisfirePolicy.replay(10)).build());
+        timer.stall(Duration.ofSeconds(220));
+        assertTrue(timer.runNext());
+        // the batch contains the firings from 00:01 to 00:04
+        awaitCount(late.runs, 4);
+        assertEquals(1, misfires.size());
+        assertEquals(3L, (long) misfires.get(0));
+        assertFalse(timer.getQueueSize() == 0);
+    }
+
+    private static void assertNear(Instant expected, Instant actual) {
+        Duration error = Duration.between(expected, actual);
+        assertTrue(expected + " != " + actual, error.abs().compareTo(Duration.ofSeconds(1)) < 0);
+    }
+
+    /**
+     * Schedules two jobs with the system clock and cancels the earlier one.
+     */
+    private void nextDueTime(CronScheduler.Builder builder) throws Exception {
+        scheduler = builder.build();
+        scheduler.start();
+        scheduler.awaitRunning();
+        assertNull(scheduler.getNextDueTime());
+        ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.MINUTES);
+        CronPattern january = CronPattern.build("0 0 1 1 *");
+        CronPattern july = CronPattern.build("0 0 1 7 *");
+        Instant januaryTime = january.next(now, false).toInstant();
+        Instant julyTime = july.next(now, false).toInstant();
+        Future<?> januaryFuture = scheduler.schedule(january, new CountingJob(), JobOptions.DEFAULT);
+        Future<?> julyFuture = scheduler.schedule(july, new CountingJob(), JobOptions.DEFAULT);
+        boolean januaryFirst = januaryTime.isBefore(julyTime);
+        assertNear(januaryFirst ? januaryTime : julyTime, scheduler.getNextDueTime());
+        assertTrue((januaryFirst ? januaryFuture : julyFuture).cancel(false));
+        assertNear(januaryFirst ? julyTime : januaryTime, scheduler.getNextDueTime());
+    }
+
+    @Test
+    public void nextDueTimeFromQueue() throws Exception {
+        nextDueTime(new CronScheduler.Builder(1));
+    }
+
+    @Test
+    public void nextDueTimeWithCancelledHead() throws Exception {
+        // the cancelled firing stays at the head of the queue
+        nextDueTime(new CronScheduler.Builder(1).setRemoveOnCancel(false));
+    }
+
+    @Test
+    public void nextDueTimeWithClock() throws Exception {
+        // the delays of the queue are not measured by the clock of the scheduler
+        start(new CronScheduler.Builder(1).setClock(clock));
+        scheduler.schedule(CronPattern.build("10 * * * *"), new CountingJob(), JobOptions.DEFAULT);
+        scheduler.schedule(CronPattern.build("5 * * * *"), new CountingJob(), JobOptions.DEFAULT);
+        assertEquals(Instant.parse("2020-01-01T00:05:00Z"), scheduler.getNextDueTime());
+    }
+
+    @Test
+    public void recordLatency() throws Exception {
+        start(new CronScheduler.Builder(1).setRecordLatency(true));
+        CountingJob job = new CountingJob();
+        Future<?> future = scheduler.schedule(CronPattern.build("* * * * *"), job, JobOptions.DEFAULT);
+        assertEquals(0, scheduler.getLagSnapshot(future).getCount());
+        // scheduled at 00:00 and started at 00:00:30
+        assertTrue(timer.runNext());
+        awaitCount(job.runs, 1);
+        assertTrue(timer.runNext());
+        awaitCount(job.runs, 2);
+        LatencyHistogram.Snapshot lag = scheduler.getLagSnapshot(future);
+        assertEquals(2, lag.getCount());
+        assertEquals(TimeUnit.SECONDS.toNanos(30), lag.getMax());
+        // the histograms of a job count values in units of 1024 nanoseconds
+        assertTrue(lag.getValueAtPercentile(50) < 1024);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while ((scheduler.getDurationSnapshot(future).getCount() < 2) && (System.nanoTime() < deadline)) {
+            Thread.sleep(1);
+        }
+        assertEquals(2, scheduler.getDurationSnapshot(future).getCount());
+        assertEquals(2, scheduler.getLagSnapshot().getCount());
+        assertEquals(2, scheduler.getDurationSnapshot().getCount());
+    }
+
+    /**
+     * Records the names of the events it receives.
+     */
+    private static class RecordingListener implements CronSchedulerListener {
+
+        final List<String> events = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onScheduled(CronFuture<?> future) {
+            events.add("scheduled");
+        }
+
+        @Override
+        public void onFired(CronFuture<?> future, Instant scheduledTime) {
+            events.add("fired");
+        }
+
+        @Override
+        public void onStarted(CronFuture<?> future) {
+            events.add("started");
+        }
+
+        @Override
+        public void onCompleted(CronFuture<?> future, long durationNanos) {
+            events.add("completed");
+        }
+
+        @Override
+        public void onFailed(CronFuture<?> future, Throwable cause) {
+            events.add("failed");
+        }
+
+        @Override
+        public void onCancelled(CronFuture<?> future) {
+            events.add("cancelled");
+        }
+
+        @Override
+        public void onMisfire(CronFuture<?> future, Instant scheduledTime, Instant actualTime,
+                              long missedFirings, MisfirePolicy policy) {
+            events.add("misfire");
+        }
+
+        @Override
+        public void onRejected(CronFuture<?> future, RejectedExecutionException cause) {
+            events.add("rejected");
+        }
+
+        void await(int expected) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while ((events.size() < expected) && (System.nanoTime() < deadline)) {
+                Thread.sleep(1);
+            }
+            assertEquals(expected, events.size());
+        }
+    }
+
+    @Test
+    public void listener() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        start(new CronScheduler.Builder(1).setListener(listener));
+        Future<?> future = scheduler.schedule(CronPattern.build("* * * * *"), new CountingJob(),
+                                              JobOptions.DEFAULT);
+        assertTrue(timer.runNext());
+        listener.await(4);
+        future.cancel(false);
+        listener.await(5);
+        assertEquals(Arrays.asList("scheduled", "fired", "started", "completed", "cancelled"), listener.events);
+    }
+
+    @Test
+    public void listenerFailedAndRejected() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        start(new CronScheduler.Builder(1).setListener(listener));
+        scheduler.schedule(CronPattern.build("* * * * *"), () -> {
+            throw new IllegalStateException();
+        }, JobOptions.DEFAULT);
+        assertTrue(timer.runNext());
+        listener.await(4);
+        assertEquals("failed", listener.events.get(3));
+        workers.shutdown();
+        assertTrue(timer.runNext());
+        listener.await(6);
+        assertEquals(Arrays.asList("fired", "rejected"), listener.events.subList(4, 6));
+    }
+
+    @Test
+    public void asyncListener() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onScheduled(CronFuture<?> future) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                super.onScheduled(future);
+            }
+        };
+        start(new CronScheduler.Builder(1).setListener(listener).setAsyncListenerCapacity(1));
+        CountingJob job = new CountingJob();
+        for (int i = 0; i < 3; i++) {
+            scheduler.schedule(CronPattern.build("* * * * *"), job, JobOptions.DEFAULT);
+        }
+        // the blocked listener does not delay the jobs
+        assertTrue(timer.runNext());
+        awaitCount(job.runs, 1);
+        assertTrue(scheduler.getDroppedListenerEvents() > 0);
+        release.countDown();
+    }
+
+    @Test
+    public void asyncListenerStop() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onScheduled(CronFuture<?> future) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    interrupted.set(true);
+                }
+                super.onScheduled(future);
+            }
+        };
+        start(new CronScheduler.Builder(1).setListener(listener).setAsyncListenerCapacity(4));
+        Future<?> future = scheduler.schedule(CronPattern.build("* * * * *"), new CountingJob(),
+                                              JobOptions.DEFAULT);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        scheduler.stop();
+        scheduler.awaitTerminated();
+        // the event after stop is dropped and the running callback is not interrupted
+        assertTrue(future.cancel(false));
+        assertEquals(1, scheduler.getDroppedListenerEvents());
+        release.countDown();
+        listener.await(1);
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    public void jmx() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName schedulerName = new ObjectName("com.addthis.cronus:type=CronScheduler,name=\"test\"");
+        ObjectName jobName = new ObjectName("com.addthis.cronus:type=CronJob,scheduler=\"test\",name=\"job\"");
+        start(new CronScheduler.Builder(1).setJmxName("test"));
+        CountingJob job = new CountingJob();
+        Future<?> future = scheduler.schedule(CronPattern.build("* * * * *"), job,
+                                              new JobOptions.Builder().setName("job").build());
+        scheduler.schedule(CronPattern.build("*/5 * * * *"), job, JobOptions.DEFAULT);
+        assertEquals(2, server.getAttribute(schedulerName, "JobCount"));
+        assertEquals(Date.from(Instant.parse("2020-01-01T00:00:00Z")),
+                     server.getAttribute(schedulerName, "NextDueTime"));
+        assertEquals("* * * * *", server.getAttribute(jobName, "Pattern"));
+        assertTrue(timer.runNext());
+        assertTrue(timer.runNext());
+        awaitCount(job.runs, 2);
+        assertEquals(2L, server.getAttribute(schedulerName, "Firings"));
+        assertEquals(1L, server.getAttribute(jobName, "Firings"));
+        assertEquals(30_000.0, server.getAttribute(jobName, "LagMaxMillis"));
+        assertEquals(Date.from(Instant.parse("2020-01-01T00:01:00Z")),
+                     server.getAttribute(jobName, "NextFireTime"));
+        future.cancel(false);
+        assertFalse(server.isRegistered(jobName));
+        scheduler.stop();
+        scheduler.awaitTerminated();
+        assertFalse(server.isRegistered(schedulerName));
+    }
+
+    @Test
+    public void rejectAfterStop() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName jobName = new ObjectName("com.addthis.cronus:type=CronJob,scheduler=\"stopped\",name=\"job\"");
+        RecordingListener listener = new RecordingListener();
+        start(new CronScheduler.Builder(1).setJmxName("stopped").setListener(listener));
+        scheduler.stop();
+        scheduler.awaitTerminated();
+        try {
+            scheduler.schedule(CronPattern.build("* * * * *"), new CountingJob(),
+                               new JobOptions.Builder().setName("job").build());
+            fail("Expected exception was not thrown");
+        } catch (RejectedExecutionException ex) {
+            assertFalse(server.isRegistered(jobName));
+            assertTrue(listener.events.isEmpty());
+        }
+    }
+
+    @Test
+    public void virtualTime() throws Exception {
+        VirtualTimeExecutor virtualTime = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        CronScheduler virtual = new CronScheduler.Builder(1).setVirtualTime(virtualTime).build();
+        CountingJob hourly = new CountingJob();
+        CountingJob daily = new CountingJob();
+        virtual.schedule(CronPattern.build("0 * * * *"), hourly, JobOptions.DEFAULT);
+        virtual.schedule(CronPattern.build("30 2 * * *"), daily, JobOptions.DEFAULT);
+        virtual.start();
+        virtual.awaitRunning();
+        // the first firing is in the minute that contains the start
+        virtualTime.advanceTo(Instant.parse("2020-01-31T23:59:00Z"));
+        assertEquals(31 * 24, hourly.runs.get());
+        assertEquals(31, daily.runs.get());
+        assertEquals(Instant.parse("2020-01-31T23:59:00Z"), virtualTime.now());
+        virtual.stop();
+        virtual.awaitTerminated();
+    }
+
+    @Test
+    public void scheduleAllAndCancelAll() throws Exception {
+        VirtualTimeExecutor virtualTime = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        CronScheduler virtual = new CronScheduler.Builder(1).setVirtualTime(virtualTime).build();
+        CountingJob job = new CountingJob();
+        CronPattern fiveMinutes = CronPattern.build("*/5 * * * *");
+        CronPattern hourly = CronPattern.build("0 * * * *");
+        List<Map.Entry<CronPattern, Runnable>> jobs = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            jobs.add(Maps.immutableEntry((i < 5) ? fiveMinutes : hourly, job));
+        }
+        List<CronFuture<?>> before = virtual.scheduleAll(jobs, JobOptions.DEFAULT);
+        assertEquals(10, before.size());
+        assertEquals(hourly, before.get(9).getPattern());
+        assertEquals(0, virtualTime.getQueueSize());
+        virtual.start();
+        virtual.awaitRunning();
+        assertEquals(10, virtualTime.getQueueSize());
+        List<CronFuture<?>> after = virtual.scheduleAll(jobs, JobOptions.DEFAULT);
+        assertEquals(20, virtual.getJobCount());
+        // the first firing is in the minute that contains the start
+        virtualTime.advanceTo(Instant.parse("2020-01-01T00:59:00Z"));
+        assertEquals(20 + 10 * 11, job.runs.get());
+        assertEquals(10, virtual.cancelAll(before, false));
+        assertEquals(0, virtual.cancelAll(before, false));
+        assertEquals(10, virtual.getJobCount());
+        virtualTime.advanceTo(Instant.parse("2020-01-01T01:00:00Z"));
+        assertEquals(20 + 10 * 11 + 10, job.runs.get());
+        assertEquals(10, virtual.cancelAll(after, false));
+        assertEquals(0, virtualTime.getQueueSize());
+        try {
+            virtual.scheduleAll(jobs, new JobOptions.Builder().setName("job").build());
+            fail("Expected exception was not thrown");
+        } catch (IllegalArgumentException ex) {
+            assertEquals(0, virtual.getJobCount());
+        }
+        virtual.stop();
+        virtual.awaitTerminated();
+    }
+
+    @Test
+    public void scheduleAndCancelConcurrentWithStart() throws Exception {
+        scheduler = new CronScheduler(timer, workers, false, new CronScheduler.Builder(1).setClock(clock));
+        CronPattern pattern = CronPattern.build("* * * * *");
+        CountingJob job = new CountingJob();
+        int threads = 4;
+        int jobsPerThread = 500;
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> producers = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            producers.add(workers.submit(() -> {
+                go.await();
+                for (int j = 0; j < jobsPerThread; j++) {
+                    Future<?> future = scheduler.schedule(pattern, job, JobOptions.DEFAULT);
+                    if ((j % 2) == 1) {
+                        future.cancel(false);
+                    }
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        scheduler.start();
+        for (Future<?> producer : producers) {
+            producer.get(5, TimeUnit.SECONDS);
+        }
+        scheduler.awaitRunning();
+        // no job is lost and no cancelled job remains in the executor
+        assertEquals(threads * jobsPerThread / 2, scheduler.getJobCount());
+        assertEquals(threads * jobsPerThread / 2, timer.getQueueSize());
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class JfrEventsTest {
+
+    @Test
+    public void firingEvents() throws Exception {
+        Assume.assumeTrue(JfrSupport.isSupported());
+        VirtualTimeExecutor timer = new VirtualTimeExecutor(Instant.parse("2020-01-01T00:00:30Z"), ZoneOffset.UTC);
+        CronScheduler scheduler = new CronScheduler.Builder(1).setVirtualTime(timer)
+                                                              .setFlightRecorderEvents(true).build();
+        scheduler.start();
+        scheduler.awaitRunning();
+        Path file = Files.createTempFile("cronus", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.addthis.cronus.Firing");
+            recording.start();
+            scheduler.schedule(CronPattern.build("* * * * *"), () -> { }, JobOptions.DEFAULT);
+            scheduler.schedule(CronPattern.build("* * * * *"), () -> {
+                throw new IllegalStateException();
+            }, JobOptions.DEFAULT);
+            assertTrue(timer.runNext());
+            assertTrue(timer.runNext());
+            recording.stop();
+            recording.dump(file);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                    .filter((event) -> event.getEventType().getName().equals("com.addthis.cronus.Firing"))
+                    .collect(Collectors.toList());
+            assertEquals(2, events.size());
+            assertEquals("* * * * *", events.get(0).getString("pattern"));
+            assertEquals(JfrEvents.COMPLETED, events.get(0).getString("outcome"));
+            assertEquals(JfrEvents.FAILED, events.get(1).getString("outcome"));
+        } finally {
+            Files.deleteIfExists(file);
+            scheduler.stop();
+            scheduler.awaitTerminated();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets() {
+        long previous = -1;
+        for (int bucket = 0; bucket < 488; bucket++) {
+            long upper = LatencyHistogram.upperBound(bucket, 3);
+            assertTrue(upper > previous);
+            assertEquals(bucket, LatencyHistogram.bucket(previous + 1, 3));
+            assertEquals(bucket, LatencyHistogram.bucket(upper, 3));
+            previous = upper;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void empty() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0.0, snapshot.getMean(), 0.0);
+        assertEquals(0, snapshot.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+        histogram.record(-5);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_001, snapshot.getCount());
+        assertEquals(10_000_000, snapshot.getMax());
+        assertEquals(0, snapshot.getValueAtPercentile(0));
+        assertEquals(10_000_000, snapshot.getValueAtPercentile(100));
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            double percentile = random.nextDouble() * 100;
+            long expected = (long) Math.ceil(percentile / 100 * 10_001) * 1000 - 1000;
+            long actual = snapshot.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected);
+            assertTrue(actual <= expected * 1.125 + 1);
+        }
+    }
+
+    @Test
+    public void compact() {
+        LatencyHistogram histogram = LatencyHistogram.compact();
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(50));
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+        histogram.record(TimeUnit.DAYS.toNanos(2));
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(10_001, snapshot.getCount());
+        assertEquals(TimeUnit.DAYS.toNanos(2), snapshot.getMax());
+        assertEquals(TimeUnit.DAYS.toNanos(2), snapshot.getValueAtPercentile(100));
+        Random random = new Random(0);
+        for (int i = 0; i < 100; i++) {
+            double percentile = random.nextDouble() * 99.99;
+            long expected = (long) Math.ceil(percentile / 100 * 10_001) * 1000;
+            long actual = snapshot.getValueAtPercentile(percentile);
+            assertTrue(actual >= expected);
+            assertTrue(actual <= expected * 1.25 + 1024);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MinuteTickDispatcherTest {
+
+    private static long timerDelay(ScheduledThreadPoolExecutor executor, TimeUnit unit) {
+        assertEquals(1, executor.getQueue().size());
+        return ((Delayed) executor.getQueue().peek()).getDelay(unit);
+    }
+
+    @Test
+    public void singleTimer() throws Exception {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        try {
+            MinuteTickDispatcher dispatcher = new MinuteTickDispatcher(executor, Clock.system(ZoneId.of("America/New_York")));
+            CronPattern pattern = CronPattern.build("* * * * *");
+            for (int i = 0; i < 1000; i++) {
+                dispatcher.add(i, pattern, (scheduled, firings) -> { });
+            }
+            assertEquals(0, executor.getQueue().size());
+            dispatcher.start();
+            assertTrue(timerDelay(executor, TimeUnit.SECONDS) <= 60);
+            assertTrue(dispatcher.remove(0));
+            assertFalse(dispatcher.remove(0));
+            assertEquals(999, dispatcher.size());
+            dispatcher.stop();
+            assertEquals(0, executor.getQueue().size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void skipIdleMinutes() throws Exception {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1);
+        executor.setRemoveOnCancelPolicy(true);
+        try {
+            MinuteTickDispatcher dispatcher = new MinuteTickDispatcher(executor, Clock.systemUTC());
+            dispatcher.add("leap", CronPattern.build("0 0 29 2 *"), (scheduled, firings) -> { });
+            dispatcher.start();
+            assertTrue(timerDelay(executor, TimeUnit.DAYS) >= 1);
+            // adding a pattern that fires sooner pulls the timer earlier
+            dispatcher.add("minute", CronPattern.build("* * * * *"), (scheduled, firings) -> { });
+            assertTrue(timerDelay(executor, TimeUnit.SECONDS) <= 60);
+            dispatcher.stop();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void addAll() throws Exception {
+        VirtualTimeExecutor executor = new VirtualTimeExecutor(Instant.parse("2020-01-01T00:00:00Z"), ZoneOffset.UTC);
+        MinuteTickDispatcher dispatcher = new MinuteTickDispatcher(executor, executor.getClock());
+        dispatcher.add("leap", CronPattern.build("0 0 29 2 *"), (scheduled, firings) -> { });
+        dispatcher.start();
+        AtomicInteger fired = new AtomicInteger();
+        List<Object> keys = new ArrayList<>();
+        List<CronPattern> patterns = new ArrayList<>();
+        List<MinuteTickDispatcher.Job> jobs = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keys.add(i);
+            patterns.add(CronPattern.build((i % 2 == 0) ? "*/5 * * * *" : "0 * * * *"));
+            jobs.add((scheduled, firings) -> fired.addAndGet(firings));
+        }
+        dispatcher.addAll(keys, patterns, jobs);
+        assertEquals(101, dispatcher.size());
+        assertEquals(1, executor.getQueueSize());
+        assertEquals(Instant.parse("2020-01-01T00:00:00Z"), dispatcher.nextFireTime());
+        executor.advance(Duration.ofMinutes(59));
+        assertEquals(50 * 12 + 50, fired.get());
+        dispatcher.stop();
+    }
+
+    @Test
+    public void longPause() throws Exception {
+        Instant start = Instant.parse("2020-01-01T00:00:00Z");
+        // the timer and the clock use separate virtual times to simulate a pause
+        VirtualTimeExecutor time = new VirtualTimeExecutor(start, ZoneOffset.UTC);
+        VirtualTimeExecutor timer = new VirtualTimeExecutor(start, ZoneOffset.UTC);
+        MinuteTickDispatcher dispatcher = new MinuteTickDispatcher(timer, time.getClock());
+        List<String> fired = new ArrayList<>();
+        for (String pattern : new String[] {"* * * * *", "5 0 * * *", "0 4 * * *", "0 6 * * *"}) {
+            dispatcher.add(pattern, CronPattern.build(pattern),
+                           (scheduled, firings) -> fired.add(pattern + "=" + Instant.ofEpochMilli(scheduled) +
+                                                             "/" + firings));
+        }
+        dispatcher.start();
+        time.advance(Duration.ofHours(5));
+        timer.advance(Duration.ofMillis(1));
+        long expected = CronPattern.build("* * * * *").countFirings(start, time.now().plusMillis(1), ZoneOffset.UTC);
+        assertEquals(301, expected);
+        assertEquals(Arrays.asList("* * * * *=2020-01-01T00:00:00Z/" + expected,
+                                   "5 0 * * *=2020-01-01T00:05:00Z/1",
+                                   "0 4 * * *=2020-01-01T04:00:00Z/1"), fired);
+        dispatcher.stop();
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TimingWheelExecutorTest {
+
+    @Test
+    public void scheduleRunsAtDeadline() throws Exception {
+        TimingWheelExecutor executor = new TimingWheelExecutor(2);
+        try {
+            ConcurrentLinkedQueue<Integer> order = new ConcurrentLinkedQueue<>();
+            CountDownLatch latch = new CountDownLatch(3);
+            long start = System.nanoTime();
+            for (int i : new int[] {300, 100, 200}) {
+                executor.schedule(() -> {
+                    order.add(i);
+                    latch.countDown();
+                }, i, TimeUnit.MILLISECONDS);
+            }
+            ScheduledFuture<Integer> future = executor.schedule(() -> 42, 50, TimeUnit.MILLISECONDS);
+            assertEquals(Integer.valueOf(42), future.get(5, TimeUnit.SECONDS));
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(300));
+            assertEquals("[100, 200, 300]", order.toString());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void cancel() throws Exception {
+        TimingWheelExecutor executor = new TimingWheelExecutor(1);
+        try {
+            AtomicInteger counter = new AtomicInteger();
+            ScheduledFuture<?> cancelled = executor.schedule(counter::incrementAndGet, 100, TimeUnit.MILLISECONDS);
+            ScheduledFuture<?> kept = executor.schedule(counter::incrementAndGet, 200, TimeUnit.MILLISECONDS);
+            assertTrue(cancelled.cancel(false));
+            kept.get(5, TimeUnit.SECONDS);
+            assertEquals(1, counter.get());
+            assertTrue(cancelled.isCancelled());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void fixedRate() throws Exception {
+        TimingWheelExecutor executor = new TimingWheelExecutor(1);
+        try {
+            CountDownLatch latch = new CountDownLatch(3);
+            ScheduledFuture<?> future = executor.scheduleAtFixedRate(latch::countDown, 0, 20, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(future.cancel(false));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void shutdown() throws Exception {
+        TimingWheelExecutor executor = new TimingWheelExecutor(1);
+        ScheduledFuture<?> future = executor.schedule(() -> { }, 1, TimeUnit.HOURS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+        assertTrue(future.isCancelled());
+        try {
+            executor.schedule(() -> { }, 1, TimeUnit.SECONDS);
+            fail("Expected exception was not thrown");
+        } catch (RejectedExecutionException ignored) {
+        }
+    }
+
+    @Test
+    public void shutdownNow() throws Exception {
+        TimingWheelExecutor executor = new TimingWheelExecutor(1);
+        executor.schedule(() -> { }, 1, TimeUnit.HOURS);
+        executor.schedule(() -> { }, 1, TimeUnit.DAYS);
+        List<Runnable> unstarted = executor.shutdownNow();
+        assertEquals(2, unstarted.size());
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void cronScheduler() throws Exception {
+        CronScheduler scheduler = new CronScheduler.Builder(1).setEngine(CronScheduler.Engine.TIMING_WHEEL).build();
+        assertTrue(scheduler.getExecutor() instanceof TimingWheelExecutor);
+        scheduler.start();
+        scheduler.awaitRunning();
+        scheduler.schedule(CronPattern.build("* * * * *"), () -> { }, false).cancel(false);
+        scheduler.stop();
+        scheduler.awaitTerminated();
+        assertTrue(scheduler.getExecutor().awaitTermination(5, TimeUnit.SECONDS));
+    }
+}
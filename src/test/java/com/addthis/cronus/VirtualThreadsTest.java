@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void newExecutor() throws Exception {
+        ExecutorService executor = VirtualThreads.newExecutor();
+        if (!VirtualThreads.isSupported()) {
+            assertNull(executor);
+            return;
+        }
+        try {
+            Boolean virtual = executor.submit(
+                    () -> (Boolean) Thread.class.getMethod("isVirtual").invoke(Thread.currentThread()))
+                                      .get(5, TimeUnit.SECONDS);
+            assertTrue(virtual);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void builder() throws Exception {
+        CronScheduler scheduler = new CronScheduler.Builder(1).setVirtualThreads(true).build();
+        scheduler.start();
+        scheduler.awaitRunning();
+        scheduler.stop();
+        scheduler.awaitTerminated();
+        assertEquals(true, scheduler.getExecutor().isTerminated());
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class VirtualTimeExecutorTest {
+
+    private static final Instant START = Instant.parse("2020-01-01T00:00:00Z");
+
+    @Test
+    public void runsInDeadlineOrder() {
+        VirtualTimeExecutor executor = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        List<String> order = new ArrayList<>();
+        for (int i : new int[] {300, 100, 200, 100}) {
+            executor.schedule(() -> order.add(i + "@" + executor.now()), i, TimeUnit.MILLISECONDS);
+        }
+        assertEquals(4, executor.getQueueSize());
+        assertEquals(0, executor.advance(Duration.ofMillis(99)));
+        assertEquals(3, executor.advance(Duration.ofMillis(101)));
+        assertEquals("[100@2020-01-01T00:00:00.100Z, 100@2020-01-01T00:00:00.100Z, " +
+                     "200@2020-01-01T00:00:00.200Z]", order.toString());
+        assertEquals(START.plusMillis(200), executor.now());
+        assertEquals(START.plusMillis(200).toEpochMilli(), executor.getClock().millis());
+        assertEquals(1, executor.getQueueSize());
+    }
+
+    @Test
+    public void tasksScheduledByTasks() {
+        VirtualTimeExecutor executor = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        AtomicInteger counter = new AtomicInteger();
+        Runnable[] task = new Runnable[1];
+        task[0] = () -> {
+            counter.incrementAndGet();
+            executor.schedule(task[0], 1, TimeUnit.MINUTES);
+        };
+        executor.execute(task[0]);
+        assertEquals(61, executor.advance(Duration.ofHours(1)));
+        assertEquals(61, counter.get());
+        assertEquals(START.plus(Duration.ofHours(1)), executor.now());
+    }
+
+    @Test
+    public void periodicTasks() {
+        VirtualTimeExecutor executor = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        List<Instant> rate = new ArrayList<>();
+        List<Instant> delay = new ArrayList<>();
+        ScheduledFuture<?> fixedRate = executor.scheduleAtFixedRate(
+                () -> rate.add(executor.now()), 10, 60, TimeUnit.SECONDS);
+        executor.scheduleWithFixedDelay(() -> delay.add(executor.now()), 0, 90, TimeUnit.SECONDS);
+        assertEquals(2, executor.getQueueSize());
+        assertEquals(6, executor.advance(Duration.ofMinutes(3)));
+        assertEquals("[2020-01-01T00:00:10Z, 2020-01-01T00:01:10Z, 2020-01-01T00:02:10Z]", rate.toString());
+        assertEquals("[2020-01-01T00:00:00Z, 2020-01-01T00:01:30Z, 2020-01-01T00:03:00Z]", delay.toString());
+        assertTrue(fixedRate.cancel(false));
+        assertEquals(1, executor.getQueueSize());
+        assertEquals(1, executor.advance(Duration.ofMinutes(2)));
+        assertEquals(3, rate.size());
+        assertEquals(Instant.parse("2020-01-01T00:04:30Z"), delay.get(3));
+        executor.shutdown();
+        assertEquals(1, executor.advance(Duration.ofMinutes(2)));
+        assertEquals(0, executor.getQueueSize());
+    }
+
+    @Test
+    public void cancel() {
+        VirtualTimeExecutor executor = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        AtomicInteger counter = new AtomicInteger();
+        ScheduledFuture<?> cancelled = executor.schedule(counter::incrementAndGet, 1, TimeUnit.SECONDS);
+        executor.schedule(counter::incrementAndGet, 2, TimeUnit.SECONDS);
+        assertTrue(cancelled.cancel(false));
+        assertEquals(1, executor.getQueueSize());
+        assertEquals(1, executor.advance(Duration.ofSeconds(2)));
+        assertEquals(1, counter.get());
+        assertEquals(0, executor.getQueueSize());
+    }
+
+    @Test
+    public void rejectAfterShutdown() {
+        VirtualTimeExecutor executor = new VirtualTimeExecutor(START, ZoneOffset.UTC);
+        executor.schedule(() -> { }, 1, TimeUnit.SECONDS);
+        assertEquals(1, executor.shutdownNow().size());
+        assertEquals(0, executor.getQueueSize());
+        try {
+            executor.execute(() -> { });
+            fail("Expected RejectedExecutionException");
+        } catch (RejectedExecutionException ex) {
+            // expected
+        }
+    }
+}
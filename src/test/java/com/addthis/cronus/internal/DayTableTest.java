@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus.internal;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DayTableTest {
+
+    private static boolean bruteForceMatches(LocalDate date, Interval month,
+                                             Interval dayOfMonth, Interval dayOfWeek) {
+        int weekday = date.getDayOfWeek().getValue() % 7;
+        if (!month.test(date.getMonthValue())) {
+            return false;
+        } else if (dayOfMonth.isFull() && dayOfWeek.isFull()) {
+            return true;
+        } else if (dayOfMonth.isFull()) {
+            return dayOfWeek.test(weekday);
+        } else if (dayOfWeek.isFull()) {
+            return dayOfMonth.test(date.getDayOfMonth());
+        } else {
+            return dayOfWeek.test(weekday) || dayOfMonth.test(date.getDayOfMonth());
+        }
+    }
+
+    private static void verify(Interval month, Interval dayOfMonth, Interval dayOfWeek) {
+        DayTable table = new DayTable(month, dayOfMonth, dayOfWeek);
+        LocalDate start = LocalDate.of(1999, 1, 1);
+        LocalDate end = LocalDate.of(2005, 1, 1);
+        for (LocalDate date = start; date.isBefore(end); date = date.plusDays(1)) {
+            assertEquals(date.toString(), bruteForceMatches(date, month, dayOfMonth, dayOfWeek),
+                         table.test(date.toEpochDay()));
+        }
+        for (LocalDate date = start.plusYears(1); date.isBefore(end.minusYears(1)); date = date.plusDays(1)) {
+            LocalDate next = date;
+            while (!bruteForceMatches(next, month, dayOfMonth, dayOfWeek)) {
+                next = next.plusDays(1);
+            }
+            assertEquals(date.toString(), next.toEpochDay(), table.nextDay(date.toEpochDay()));
+            LocalDate previous = date;
+            while (!bruteForceMatches(previous, month, dayOfMonth, dayOfWeek)) {
+                previous = previous.minusDays(1);
+            }
+            assertEquals(date.toString(), previous.toEpochDay(), table.previousDay(date.toEpochDay()));
+        }
+    }
+
+    @Test
+    public void matchesCalendar() {
+        Interval allMonths = new Interval.Builder(1, 12).setAll(true).build();
+        Interval allDays = new Interval.Builder(1, 31).setAll(true).build();
+        Interval allWeekdays = new Interval.Builder(0, 6).setAll(true).build();
+        Interval february = new Interval.Builder(1, 12).setIndex(2, true).build();
+        Interval lastDay = new Interval.Builder(1, 31).setIndex(31, true).build();
+        Interval leapDay = new Interval.Builder(1, 31).setIndex(29, true).build();
+        Interval monday = new Interval.Builder(0, 6).setIndex(1, true).build();
+        verify(allMonths, allDays, allWeekdays);
+        verify(february, leapDay, allWeekdays);
+        verify(allMonths, lastDay, monday);
+        verify(allMonths, allDays, monday);
+        verify(february, lastDay, monday);
+    }
+
+    @Test
+    public void isEmpty() {
+        Interval april = new Interval.Builder(1, 12).setIndex(4, true).build();
+        Interval lastDay = new Interval.Builder(1, 31).setIndex(31, true).build();
+        Interval allWeekdays = new Interval.Builder(0, 6).setAll(true).build();
+        Interval noWeekdays = new Interval.Builder(0, 6).build();
+        Interval monday = new Interval.Builder(0, 6).setIndex(1, true).build();
+        assertTrue(new DayTable(april, lastDay, allWeekdays).isEmpty());
+        assertTrue(new DayTable(april, lastDay, noWeekdays).isEmpty());
+        assertFalse(new DayTable(april, lastDay, monday).isEmpty());
+    }
+}
@@ -13,12 +13,17 @@
  */
 package com.addthis.cronus.internal;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class IntervalTest {
 
@@ -46,4 +51,62 @@ public class IntervalTest {
         iterator = interval.indexIterator(3);
         assertFalse(iterator.hasNext());
     }
+
+    @Test
+    public void nextInt() {
+        Interval interval = new Interval.Builder(0, 59).setIndex(0, true).setIndex(30, true).setIndex(59, true).build();
+        assertEquals(0, interval.nextInt(0, true));
+        assertEquals(30, interval.nextInt(0, false));
+        assertEquals(30, interval.nextInt(30, true));
+        assertEquals(59, interval.nextInt(30, false));
+        assertEquals(-1, interval.nextInt(59, false));
+        assertEquals(Integer.valueOf(59), interval.next(59, true));
+        assertNull(interval.next(59, false));
+        interval = new Interval.Builder(1, 12).setIndex(12, true).build();
+        assertEquals(12, interval.nextInt(1, true));
+        assertEquals(-1, interval.nextInt(12, false));
+        interval = new Interval.Builder(0, 63).setIndex(63, true).build();
+        assertEquals(63, interval.nextInt(0, true));
+        assertEquals(-1, interval.nextInt(63, false));
+    }
+
+    @Test
+    public void previousInt() {
+        Interval interval = new Interval.Builder(0, 59).setIndex(0, true).setIndex(30, true).setIndex(59, true).build();
+        assertEquals(59, interval.previousInt(59, true));
+        assertEquals(30, interval.previousInt(59, false));
+        assertEquals(30, interval.previousInt(31, true));
+        assertEquals(0, interval.previousInt(30, false));
+        assertEquals(-1, interval.previousInt(0, false));
+        assertEquals(Integer.valueOf(0), interval.previous(0, true));
+        assertNull(interval.previous(0, false));
+        interval = new Interval.Builder(1, 31).setIndex(1, true).build();
+        assertEquals(1, interval.previousInt(31, true));
+        assertEquals(-1, interval.previousInt(1, false));
+        interval = new Interval.Builder(0, 63).setIndex(0, true).build();
+        assertEquals(0, interval.previousInt(63, true));
+    }
+
+    @Test
+    public void forEach() {
+        List<Integer> values = new ArrayList<>();
+        new Interval.Builder(1, 31).setRange(1, 31, 10, true).build().forEach(values::add);
+        assertEquals(Arrays.asList(1, 11, 21, 31), values);
+        values.clear();
+        new Interval.Builder(1, 31).build().forEach(values::add);
+        assertTrue(values.isEmpty());
+    }
+
+    @Test
+    public void fullAndEmpty() {
+        Interval interval = new Interval.Builder(0, 6).setAll(true).build();
+        assertTrue(interval.isFull());
+        assertEquals(7, interval.cardinality());
+        interval = new Interval.Builder(interval).setIndex(3, false).build();
+        assertFalse(interval.isFull());
+        assertFalse(interval.isEmpty());
+        interval = new Interval.Builder(interval).setRange(0, 6, false).build();
+        assertTrue(interval.isEmpty());
+        assertTrue(new Interval.Builder(0, 63).setAll(true).build().isFull());
+    }
 }
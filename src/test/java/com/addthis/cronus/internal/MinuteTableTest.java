@@ -0,0 +1,67 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MinuteTableTest {
+
+    private static void verify(Interval minute, Interval hour) {
+        MinuteTable table = new MinuteTable(minute, hour);
+        int expectedNext = -1;
+        int count = 0;
+        for (int i = 1439; i >= 0; i--) {
+            boolean expected = minute.test(i % 60) && hour.test(i / 60);
+            assertEquals(expected, table.test(i));
+            if (expected) {
+                expectedNext = i;
+                count++;
+            }
+            assertEquals(expectedNext, table.next(i));
+        }
+        assertEquals(count, table.cardinality());
+        assertEquals(count, table.count(0, 1440));
+        int expectedPrevious = -1;
+        int running = 0;
+        for (int i = 0; i < 1440; i++) {
+            assertEquals(running, table.count(0, i));
+            if (table.test(i)) {
+                expectedPrevious = i;
+                running++;
+            }
+            assertEquals(expectedPrevious, table.previous(i));
+            assertEquals(running, table.count(0, i + 1));
+            assertEquals(count - running, table.count(i + 1, 1440));
+        }
+        assertEquals(-1, table.next(1440));
+        assertEquals(-1, table.previous(-1));
+    }
+
+    @Test
+    public void matchesIntervals() {
+        Interval allMinutes = new Interval.Builder(0, 59).setAll(true).build();
+        Interval allHours = new Interval.Builder(0, 23).setAll(true).build();
+        verify(allMinutes, allHours);
+        verify(new Interval.Builder(0, 59).setIndex(0, true).setIndex(59, true).build(), allHours);
+        verify(new Interval.Builder(0, 59).setRange(0, 59, 7, true).build(),
+               new Interval.Builder(0, 23).setRange(3, 21, 5, true).build());
+        verify(new Interval.Builder(0, 59).setIndex(30, true).build(),
+               new Interval.Builder(0, 23).setIndex(23, true).build());
+        verify(new Interval.Builder(0, 59).build(), allHours);
+        assertTrue(new MinuteTable(new Interval.Builder(0, 59).build(), allHours).isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.addthis.cronus.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 1000;
+
+    @Test
+    public void expire() {
+        Random random = new Random(5);
+        long start = 123_456;
+        int count = 5000;
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, start);
+        List<TimingWheel.Entry<Integer>> entries = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            // deadlines up to three days in the future with some in the past
+            long deadline = start - 5 * TICK + (long) (random.nextDouble() * 3 * 86400 * TICK);
+            entries.add(wheel.add(i, deadline));
+        }
+        Set<Integer> removed = new HashSet<>();
+        for (int i = 0; i < 500; i++) {
+            int index = random.nextInt(count);
+            assertEquals(removed.add(index), wheel.remove(entries.get(index)));
+        }
+        assertEquals(count - removed.size(), wheel.size());
+        List<Long> remaining = new ArrayList<>();
+        for (TimingWheel.Entry<Integer> entry : entries) {
+            if (!removed.contains(entry.getValue())) {
+                remaining.add(entry.getDeadline());
+            }
+        }
+        Collections.sort(remaining);
+        Set<Integer> expired = new HashSet<>();
+        long now = start;
+        while (wheel.size() > 0) {
+            long current = now;
+            long next = wheel.expire(now, (value) -> {
+                assertTrue(entries.get(value).getDeadline() <= current);
+                assertFalse(removed.contains(value));
+                assertTrue(expired.add(value));
+            });
+            // every entry that is due has expired
+            int due = 0;
+            while (due < remaining.size() && remaining.get(due) <= now) {
+                due++;
+            }
+            assertEquals(due, expired.size());
+            assertTrue(next > now);
+            // the wheel never sleeps past the next deadline
+            assertTrue((due == remaining.size()) || (next <= remaining.get(due)));
+            // sometimes jump ahead past the next wake up time
+            now = random.nextBoolean() ? next : (next + random.nextInt(3600) * TICK);
+        }
+        assertEquals(remaining.size(), expired.size());
+    }
+
+    @Test
+    public void sleepUntilOccupiedSlot() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        wheel.add("hour", 3 * 3600 * TICK + 5);
+        assertEquals(3 * 3600 * TICK, wheel.expire(0, (value) -> { }));
+        wheel.add("minute", 2 * 60 * TICK + 5);
+        assertEquals(2 * 60 * TICK, wheel.expire(0, (value) -> { }));
+        wheel.add("second", 7 * TICK + 5);
+        assertEquals(7 * TICK, wheel.expire(0, (value) -> { }));
+        assertEquals(7 * TICK + 5, wheel.expire(7 * TICK, (value) -> { }));
+        TimingWheel<String> overflow = new TimingWheel<>(TICK, 0);
+        overflow.add("day", 2 * 86400 * TICK);
+        assertEquals(86400 * TICK, overflow.expire(0, (value) -> { }));
+    }
+
+    @Test
+    public void clear() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 0);
+        wheel.add("a", 10);
+        wheel.add("b", 100 * TICK);
+        wheel.add("c", 100_000 * TICK);
+        List<String> values = new ArrayList<>();
+        wheel.clear(values::add);
+        assertEquals(3, values.size());
+        assertEquals(0, wheel.size());
+        assertEquals(Long.MAX_VALUE, wheel.expire(0, (value) -> { }));
+    }
+}